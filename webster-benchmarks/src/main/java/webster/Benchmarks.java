@@ -0,0 +1,19 @@
+package webster;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the benchmarks with the GC profiler, so every result comes with the bytes allocated per operation
+// (gc.alloc.rate.norm). Takes the usual JMH arguments, e.g. a regex selecting benchmarks:
+//   java -jar webster-benchmarks/target/benchmarks.jar DefaultFlow
+public class Benchmarks {
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package webster.decisions;
+
+import org.openjdk.jmh.annotations.*;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.resource.Resource;
+import webster.util.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// the interpreted node graph against the compiled flow specialized for the resource, for a plain GET, a conditional
+// GET answered with 304 and a POST
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultFlowBenchmark {
+
+    private static final Instant lastModified = Instant.parse("2015-03-01T10:00:00Z");
+
+    private final Resource resource = new Resource() {
+        @Override
+        public CompletableFuture<Optional<String>> etag(Request request) {
+            return CompletableFuture.completedFuture(Optional.of("\"v1\""));
+        }
+
+        @Override
+        public CompletableFuture<Optional<Instant>> lastModified(Request request) {
+            return CompletableFuture.completedFuture(Optional.of(lastModified));
+        }
+
+        @Override
+        public Set<String> allowedMethods() {
+            return new HashSet<>(Arrays.asList("GET", "POST"));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<ResponseBody> entity(Request request) {
+            return CompletableFuture.completedFuture(Responses.bodyFrom("hello"));
+        }
+    };
+
+    @Param({"get", "conditional", "post"})
+    public String scenario;
+
+    private Request request;
+    private Node generic;
+    private Node specialized;
+
+    @Setup
+    public void setUp() {
+        Map<String, String> headers;
+        switch (scenario) {
+            case "conditional":
+                headers = Maps.newStringMap()
+                        .with("Accept", "text/html")
+                        .with("If-None-Match", "\"v1\"")
+                        .build();
+                break;
+            case "post":
+                headers = Maps.newStringMap()
+                        .with("Accept", "text/html")
+                        .with("Content-Type", "text/plain")
+                        .build();
+                break;
+            default:
+                headers = Maps.newStringMap().with("Accept", "text/html").build();
+        }
+        request = new Request(scenario.equals("post") ? "POST" : "GET", "/resource", headers,
+                new ByteArrayInputStream(new byte[0]), Collections.emptyMap(), Collections.emptyList(),
+                Collections.emptyMap());
+        generic = DefaultFlow.get();
+        specialized = DefaultFlow.specializedFor(resource);
+    }
+
+    @Benchmark
+    public Response generic() {
+        return generic.apply(resource, request).join();
+    }
+
+    @Benchmark
+    public Response specialized() {
+        return specialized.apply(resource, request).join();
+    }
+}
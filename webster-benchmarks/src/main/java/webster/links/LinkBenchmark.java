@@ -0,0 +1,40 @@
+package webster.links;
+
+import org.openjdk.jmh.annotations.*;
+import webster.util.Maps;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkBenchmark {
+
+    private final Link link =
+            new Link("http", "example.com", Optional.of(8080), Optional.of("/shop"), "/orders/:order/items/:item");
+    private final Map<String, String> pathParams = Maps.newStringMap()
+            .with("order", "4711")
+            .with("item", "42")
+            .build();
+    private ExpandedLink expanded;
+
+    @Setup
+    public void setUp() {
+        expanded = link.expandAll(pathParams).withQueryParam("page", 2);
+    }
+
+    @Benchmark
+    public String absoluteUrl() {
+        return expanded.absoluteUrl();
+    }
+
+    @Benchmark
+    public String expandAndRender() {
+        return link.expandAll(pathParams).withQueryParam("page", 2).absoluteUrl();
+    }
+}
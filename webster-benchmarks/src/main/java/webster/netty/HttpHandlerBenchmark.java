@@ -0,0 +1,117 @@
+package webster.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import webster.requestresponse.Request;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.resource.Resource;
+import webster.routing.RoutingTable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static webster.routing.RoutingBuilder.from;
+import static webster.routing.RoutingBuilder.routingTable;
+
+// a request from its bytes to the bytes of its response, through the codec, routing, the decision flow and the
+// response writing, on an EmbeddedChannel with non-blocking handlers run inline
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpHandlerBenchmark {
+
+    private static final String entity = String.join("", Collections.nCopies(64, "hello webster, "));
+
+    private final Resource resource = new Resource() {
+        @Override
+        public Set<String> allowedMethods() {
+            return new HashSet<>(Arrays.asList("GET", "POST"));
+        }
+
+        @Override
+        public Set<String> supportedMediaTypes() {
+            return Collections.singleton("text/plain");
+        }
+
+        @Override
+        public boolean isCompressible(String mediaType) {
+            return true;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<ResponseBody> entity(Request request) {
+            return CompletableFuture.completedFuture(Responses.bodyFrom(entity));
+        }
+    };
+
+    @Param({"get", "gzip", "post"})
+    public String scenario;
+
+    private ExecutorService executor;
+    private EmbeddedChannel channel;
+    private ByteBuf request;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        RoutingTable routes = routingTable()
+                .withRoute(from("/resource").toResource(resource))
+                .build();
+        channel = new EmbeddedChannel(new HttpServerCodec(), new HttpObjectAggregator(1024 * 1024),
+                new HttpHandler(routes, executor, 10000, true, 256));
+        String raw;
+        switch (scenario) {
+            case "gzip":
+                raw = "GET /resource HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: gzip\r\n\r\n";
+                break;
+            case "post":
+                raw = "POST /resource HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/plain\r\n"
+                        + "Content-Length: 11\r\n\r\nhello world";
+                break;
+            default:
+                raw = "GET /resource HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        }
+        request = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(raw, CharsetUtil.US_ASCII));
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public int handle() {
+        channel.writeInbound(request.duplicate());
+        channel.runPendingTasks();
+        int bytes = 0;
+        for (Object out = channel.readOutbound(); out != null; out = channel.readOutbound()) {
+            if (out instanceof ByteBuf) {
+                bytes += ((ByteBuf) out).readableBytes();
+            }
+            ReferenceCountUtil.release(out);
+        }
+        return bytes;
+    }
+}
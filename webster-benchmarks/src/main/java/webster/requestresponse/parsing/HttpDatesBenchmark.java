@@ -0,0 +1,44 @@
+package webster.requestresponse.parsing;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpDatesBenchmark {
+
+    // IMF-fixdate, RFC 850, asctime and garbage
+    @Param({"Sun, 06 Nov 1994 08:49:37 GMT", "Sunday, 06-Nov-94 08:49:37 GMT", "Sun Nov  6 08:49:37 1994",
+            "not a date"})
+    public String date;
+
+    private Optional<String> header;
+    private final Instant instant = Instant.parse("1994-11-06T08:49:37Z");
+
+    @Setup
+    public void setUp() {
+        header = Optional.of(date);
+    }
+
+    @Benchmark
+    public Optional<Instant> asHttpDate() {
+        return Parsers.asHttpDate.apply(header);
+    }
+
+    @Benchmark
+    public String format() {
+        return HttpDates.format(instant);
+    }
+
+    @Benchmark
+    public String now() {
+        return HttpDates.now();
+    }
+}
@@ -0,0 +1,44 @@
+package webster.resource;
+
+import org.openjdk.jmh.annotations.*;
+import webster.requestresponse.Request;
+import webster.util.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentNegotiationBenchmark {
+
+    private static final Set<String> supportedMediaTypes =
+            new HashSet<>(Arrays.asList("application/hal+json", "application/json", "text/html"));
+
+    // no preference, a single type and what browsers send
+    @Param({"*/*", "application/json",
+            "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8"})
+    public String accept;
+
+    private Request request;
+
+    @Setup
+    public void setUp() {
+        request = new Request("GET", "/resource", Maps.newStringMap().with("Accept", accept).build(),
+                new ByteArrayInputStream(new byte[0]), Collections.emptyMap(), Collections.emptyList(),
+                Collections.emptyMap());
+    }
+
+    @Benchmark
+    public Optional<String> bestMediaTypeFor() {
+        return ContentNegotiation.bestMediaTypeFor(request, supportedMediaTypes);
+    }
+}
@@ -0,0 +1,65 @@
+package webster.routing;
+
+import org.openjdk.jmh.annotations.*;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static webster.routing.RoutingBuilder.routingTable;
+
+// compares the trie based RoutingTable with the linear scan over Route#matches it replaced
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+
+    private static final CompletableFuture<Response> ok = CompletableFuture.completedFuture(new Response(200));
+
+    @Param({"10", "100", "500"})
+    public int resources;
+
+    @Param({"/resource0", "/resourceLast/42", "/resourceLast/42/items/a/b", "/not/found"})
+    public String path;
+
+    private List<Route> routes;
+    private RoutingTable routingTable;
+    private Request request;
+
+    @Setup
+    public void setUp() {
+        routes = new ArrayList<>();
+        RoutingBuilder.RoutingTableBuilder builder = routingTable();
+        for (int i = 0; i < resources; i++) {
+            String name = i == resources - 1 ? "resourceLast" : "resource" + i;
+            for (String pattern : new String[]{"/" + name, "/" + name + "/:id", "/" + name + "/:id/items/*"}) {
+                Route route = new Route(pattern, req -> ok);
+                routes.add(route);
+                builder.withRoute(route);
+            }
+        }
+        routingTable = builder.build();
+        request = new Request("GET", path, Collections.emptyMap(), new ByteArrayInputStream(new byte[0]),
+                Collections.emptyMap(), Collections.emptyList(), Collections.emptyMap());
+    }
+
+    @Benchmark
+    public CompletableFuture<Response> trie() {
+        return routingTable.apply(request);
+    }
+
+    @Benchmark
+    public CompletableFuture<Response> linearScan() {
+        Optional<Route> route = routes.stream().filter(r -> r.matches(request)).findFirst();
+        return route.isPresent() ? route.get().apply(request) : ok;
+    }
+}
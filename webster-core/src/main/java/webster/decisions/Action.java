@@ -24,11 +24,25 @@ public class Action implements Node {
 
     @Override
     public CompletableFuture<Response> apply(Resource resource, Request request) {
-        logger.info("performing " + name + " action");
+        if (logger.isDebugEnabled()) {
+            logger.debug("performing " + name + " action");
+        }
         return action.apply(resource, request)
                 .thenCompose(ignored -> then.apply(resource, request));
     }
 
+    String name() {
+        return name;
+    }
+
+    BiFunction<Resource, Request, CompletableFuture<Void>> action() {
+        return action;
+    }
+
+    Node then() {
+        return then;
+    }
+
     public static interface Fn extends BiFunction<Resource, Request, CompletableFuture<Void>> {
     }
 }
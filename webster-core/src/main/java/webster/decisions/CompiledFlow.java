@@ -0,0 +1,178 @@
+package webster.decisions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.resource.Resource;
+import webster.util.Futures;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+import static webster.util.Futures.isCompletedNormally;
+
+// A node graph flattened into an indexed state machine. Decisions and actions whose futures are already completed are
+// evaluated in a loop on the calling thread. Only a future that is not yet done suspends the flow, which then resumes
+// at the next state once that future completes.
+public class CompiledFlow implements Node {
+    private final static Logger logger = LoggerFactory.getLogger(CompiledFlow.class);
+
+    static final int DECISION = 0;
+    static final int ACTION = 1;
+    static final int COMPLETION = 2;
+    static final int DELEGATE = 3;
+
+    private final int[] kinds;
+    private final String[] names;
+    private final Object[] functions;
+    private final int[] onTrue;
+    private final int[] onFalse;
+    // null if nobody listens
+    private final FlowListener listener;
+    private final String route;
+
+    CompiledFlow(int[] kinds, String[] names, Object[] functions, int[] onTrue, int[] onFalse) {
+        this(kinds, names, functions, onTrue, onFalse, null, null);
+    }
+
+    private CompiledFlow(int[] kinds, String[] names, Object[] functions, int[] onTrue, int[] onFalse,
+                         FlowListener listener, String route) {
+        this.kinds = kinds;
+        this.names = names;
+        this.functions = functions;
+        this.onTrue = onTrue;
+        this.onFalse = onFalse;
+        this.listener = listener;
+        this.route = route;
+    }
+
+    public int size() {
+        return kinds.length;
+    }
+
+    // the same flow, reporting every request to the listener as a request of route
+    public CompiledFlow listenedBy(FlowListener listener, String route) {
+        return new CompiledFlow(kinds, names, functions, onTrue, onFalse, listener, route);
+    }
+
+    @Override
+    public CompletableFuture<Response> apply(Resource resource, Request request) {
+        FlowListener.Events events = listener == null ? null : listener.start(route, request);
+        if (events == null) {
+            return run(0, resource, request, null);
+        }
+        long started = System.nanoTime();
+        // a failed flow is answered with 500
+        return run(0, resource, request, events).whenComplete((response, failure) ->
+                events.finished(response != null ? response.status() : 500, System.nanoTime() - started));
+    }
+
+    // events is null if the request isn't listened to, which is checked before anything is measured
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Response> run(int state, Resource resource, Request request,
+                                            FlowListener.Events events) {
+        long started = 0;
+        try {
+            while (true) {
+                if (events != null) {
+                    started = System.nanoTime();
+                }
+                switch (kinds[state]) {
+                    case DECISION: {
+                        CompletableFuture<Boolean> decided =
+                                ((BiFunction<Resource, Request, CompletableFuture<Boolean>>) functions[state])
+                                        .apply(resource, request);
+                        if (!isCompletedNormally(decided)) {
+                            int suspended = state;
+                            long suspendedAt = started;
+                            return reportingFailures(decided, suspended, events, started).thenCompose(result ->
+                                    run(afterDecision(suspended, result, events, suspendedAt), resource, request,
+                                            events));
+                        }
+                        state = afterDecision(state, decided.join(), events, started);
+                        break;
+                    }
+                    case ACTION: {
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("performing " + names[state] + " action");
+                        }
+                        CompletableFuture<Void> performed =
+                                ((BiFunction<Resource, Request, CompletableFuture<Void>>) functions[state])
+                                        .apply(resource, request);
+                        if (!isCompletedNormally(performed)) {
+                            int suspended = state;
+                            long suspendedAt = started;
+                            return reportingFailures(performed, suspended, events, started).thenCompose(ignored ->
+                                    run(afterAction(suspended, events, suspendedAt), resource, request, events));
+                        }
+                        state = afterAction(state, events, started);
+                        break;
+                    }
+                    case COMPLETION: {
+                        CompletableFuture<Response> response =
+                                ((BiFunction<Resource, Request, CompletableFuture<Response>>) functions[state])
+                                        .apply(resource, request);
+                        return completed(response, state, events, started);
+                    }
+                    default:
+                        return completed(((Node) functions[state]).apply(resource, request), state, events, started);
+                }
+            }
+        } catch (Throwable e) {
+            if (events != null) {
+                events.failed(names[state], e, System.nanoTime() - started);
+            }
+            return Futures.failed(e);
+        }
+    }
+
+    private int afterDecision(int state, boolean result, FlowListener.Events events, long started) {
+        if (events != null) {
+            events.decided(names[state], result, System.nanoTime() - started);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("made " + names[state] + " decision -> " + result);
+        }
+        return result ? onTrue[state] : onFalse[state];
+    }
+
+    private int afterAction(int state, FlowListener.Events events, long started) {
+        if (events != null) {
+            events.acted(names[state], System.nanoTime() - started);
+        }
+        return onTrue[state];
+    }
+
+    private <T> CompletableFuture<T> reportingFailures(CompletableFuture<T> future, int state,
+                                                       FlowListener.Events events, long started) {
+        if (events == null) {
+            return future;
+        }
+        return future.whenComplete((result, failure) -> {
+            if (failure != null) {
+                events.failed(names[state], Futures.unwrap(failure), System.nanoTime() - started);
+            }
+        });
+    }
+
+    private CompletableFuture<Response> completed(CompletableFuture<Response> response, int state,
+                                                  FlowListener.Events events, long started) {
+        if (events == null && !logger.isDebugEnabled()) {
+            return response;
+        }
+        String name = names[state];
+        return response.whenComplete((r, failure) -> {
+            if (events != null) {
+                if (r != null) {
+                    events.completed(name, r.status(), System.nanoTime() - started);
+                } else {
+                    events.failed(name, Futures.unwrap(failure), System.nanoTime() - started);
+                }
+            }
+            if (r != null && logger.isDebugEnabled()) {
+                logger.debug(name + " completion -> " + r.status());
+            }
+        });
+    }
+}
@@ -22,12 +22,24 @@ public class Completion implements Node {
 
     @Override
     public CompletableFuture<Response> apply(Resource resource, Request request) {
-        return completion.apply(resource, request).thenApply(response -> {
-            logger.info(name + " completion -> " + response.status());
+        CompletableFuture<Response> response = completion.apply(resource, request);
+        if (!logger.isDebugEnabled()) {
             return response;
+        }
+        return response.thenApply(r -> {
+            logger.debug(name + " completion -> " + r.status());
+            return r;
         });
     }
 
+    String name() {
+        return name;
+    }
+
+    BiFunction<Resource, Request, CompletableFuture<Response>> completion() {
+        return completion;
+    }
+
     public static interface Fn extends BiFunction<Resource, Request, CompletableFuture<Response>> {
     }
 }
@@ -29,13 +29,31 @@ public class Decision implements Node {
         return decision
                 .apply(resource, request)
                 .thenCompose(decisionResult -> {
-                    logger.debug("made " + name + " decision -> " + decisionResult);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("made " + name + " decision -> " + decisionResult);
+                    }
                     return decisionResult
                             ? onTrue.apply(resource, request)
                             : onFalse.apply(resource, request);
                 });
     }
 
+    String name() {
+        return name;
+    }
+
+    BiFunction<Resource, Request, CompletableFuture<Boolean>> decision() {
+        return decision;
+    }
+
+    Node onTrue() {
+        return onTrue;
+    }
+
+    Node onFalse() {
+        return onFalse;
+    }
+
     public static interface Fn extends BiFunction<Resource, Request, CompletableFuture<Boolean>> {
     }
 }
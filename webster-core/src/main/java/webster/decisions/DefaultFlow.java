@@ -3,13 +3,18 @@ package webster.decisions;
 import webster.requestresponse.Request;
 import webster.requestresponse.Response;
 import webster.requestresponse.Responses;
+import webster.requestresponse.parsing.HttpDates;
 import webster.requestresponse.parsing.Parsable;
+import webster.resource.Resource;
+import webster.util.ConcurrencyLimiter;
 import webster.util.Maps;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -26,6 +31,18 @@ public class DefaultFlow {
         return resp.withAdditionalHeader("Content-Type", bestMediaTypeFor(req, mediaTypes).orElse("text/plain"));
     }
 
+    // caches must not hand a compressed response to a client that doesn't accept it
+    public static Response withCompressibility(Response resp, Resource r) {
+        String contentType = resp.headers().get("Content-Type");
+        if (contentType == null || !r.isCompressible(contentType.split(";")[0].trim())) {
+            return resp;
+        }
+        String vary = resp.headers().get("Vary");
+        return resp
+                .withAdditionalHeader("Vary", vary == null ? "Accept-Encoding" : vary + ", Accept-Encoding")
+                .withCompressible(true);
+    }
+
     public static <T> Function<Response, CompletionStage<Response>> withOptionalHeader(
             String header,
             Function<Response, CompletionStage<Optional<T>>> value,
@@ -41,15 +58,16 @@ public class DefaultFlow {
             Function<Response, CompletionStage<Response>> setContentType = resp ->
                     resp.body() == null
                             ? CompletableFuture.completedFuture(resp)
-                            : r.supportedMediaTypes(req).thenApply(mediaTypes -> withContentType(resp, req, mediaTypes));
+                            : r.supportedMediaTypes(req).thenApply(mediaTypes ->
+                                    withCompressibility(withContentType(resp, req, mediaTypes), r));
             Function<Response, CompletionStage<Response>> setLastModified = withOptionalHeader(
                     "Last-Modified",
                     resp -> r.lastModified(req),
-                    lastModified -> rfc1123().format(new Date(lastModified.toEpochMilli())));
+                    HttpDates::format);
             Function<Response, CompletionStage<Response>> setExpires = withOptionalHeader(
                     "Expires",
                     resp -> r.expires(req),
-                    expires -> rfc1123().format(new Date(expires.toEpochMilli())));
+                    HttpDates::format);
             Function<Response, CompletionStage<Response>> setETag = withOptionalHeader(
                     "ETag",
                     resp -> etagStatuses.contains(resp.status())
@@ -62,7 +80,7 @@ public class DefaultFlow {
                     .thenCompose(setLastModified)
                     .thenCompose(setExpires)
                     .thenCompose(setETag)
-                    .thenApply(resp -> resp.withAdditionalHeader("Date", rfc1123().format(new Date())))
+                    .thenApply(resp -> resp.withAdditionalHeader("Date", HttpDates.now()))
                     .thenCompose(resp -> r.additionalHeaders(resp.status(), req).thenApply(resp::withAdditionalHeaders))
                     .thenCompose(resp -> r.override(req, resp));
         };
@@ -86,13 +104,15 @@ public class DefaultFlow {
             CompletableFuture.completedFuture(new Response(204)));
 
     public static Decision.Fn isServiceAvailable = (r, req) ->
-            CompletableFuture.completedFuture(true);
+            ConcurrencyLimiter.isRejected(req) ? CompletableFuture.completedFuture(false) : r.isServiceAvailable(req);
 
     public static Decision.Fn isKnownMethod = (r, req) ->
             CompletableFuture.completedFuture(r.knownMethods().contains(req.method()));
 
     public static Completion.Fn serviceNotAvailable = completionWithDefaults((r, req) ->
-            CompletableFuture.completedFuture(new Response(503)));
+            CompletableFuture.completedFuture(ConcurrencyLimiter.retryAfter(req)
+                    .map(seconds -> new Response(503, Maps.newStringMap().with("Retry-After", seconds.toString()).build()))
+                    .orElseGet(() -> new Response(503))));
 
     public static Completion.Fn unknownMethod = completionWithDefaults((r, req) ->
             CompletableFuture.completedFuture(new Response(501)));
@@ -236,8 +256,9 @@ public class DefaultFlow {
 
     private static Function<Optional<Instant>, Boolean> optionalInstantAfterHeaderDate(Parsable<Optional<String>> header) {
         Instant headerDate = header.parse(asHttpDate).get();
+        // http dates have a resolution of seconds
         return optionalInstant -> optionalInstant
-                .filter(instant -> instant.isAfter(headerDate))
+                .filter(instant -> instant.truncatedTo(ChronoUnit.SECONDS).isAfter(headerDate))
                 .isPresent();
     }
 
@@ -272,7 +293,7 @@ public class DefaultFlow {
             CompletableFuture.completedFuture(req.header("If-Modified-Since").value().isPresent());
 
     public static Decision.Fn ifModifiedSinceIsValidDate = (r, req) ->
-            CompletableFuture.completedFuture(req.header("If-None-Match").parse(asHttpDate).isPresent());
+            CompletableFuture.completedFuture(req.header("If-Modified-Since").parse(asHttpDate).isPresent());
 
     public static Decision.Fn ifModifiedSinceAfterNow = (r, req) ->
             CompletableFuture.completedFuture(req.header("If-Modified-Since")
@@ -406,7 +427,52 @@ public class DefaultFlow {
                     .onFalse(complete("unknownMethod", unknownMethod)))
             .onFalse(complete("serviceNotAvailable", serviceNotAvailable));
 
+    private static Node compiledFlow = FlowCompiler.compile(decisionFlow);
+
+    private static final CompletableFuture<Boolean> yes = CompletableFuture.completedFuture(true);
+
+    private static final CompletableFuture<Boolean> no = CompletableFuture.completedFuture(false);
+
+    private static final FlowSpecializer specializer = new FlowSpecializer()
+            .replace(isServiceAvailable, sample -> (r, req) -> ConcurrencyLimiter.isRejected(req) ? no : yes,
+                    "isServiceAvailable")
+            .fold(isDeleteEnacted, true)
+            .fold(isMalformed, false, "isMalformed")
+            .fold(isUnauthorized, false, "isAuthorized")
+            .fold(isForbidden, false, "isAllowed")
+            .fold(unknownContentType, false, "supportedContentTypes")
+            .fold(isPostForbidden, false, "isPostAllowed")
+            .fold(isPostValid, true, "isPostValid")
+            .fold(isPutForbidden, false, "isPutAllowed")
+            .fold(isPutValid, true, "isPutValid")
+            .fold(isDeleteForbidden, false, "isDeletetAllowed")
+            .fold(isConflict, false, "isConflict")
+            .fold(isRespondWithEntity, true, "respondWithEntity")
+            .fold(isRedirect, false, "redirectAfterPost")
+            .fold(serverPermitsPostToMissingResource, false, "isPostToMissingResourceAllowed")
+            .fold(resourcePreviouslyExisted, false, "resourcePreviouslyExisted")
+            .fold(resourceMovedPermanently, true, "resourceMovedPermanently")
+            .fold(etagInIfMatch, false, "etag")
+            .fold(etagInIfNoneMatch, false, "etag")
+            .fold(lastModifiedAfterIfUnmodifiedSince, false, "lastModified")
+            .replace(isKnownMethod, sample -> {
+                Set<String> knownMethods = new HashSet<>(sample.knownMethods());
+                return (r, req) -> knownMethods.contains(req.method()) ? yes : no;
+            }, "knownMethods")
+            .replace(isMethodAllowed, sample -> {
+                Set<String> allowedMethods = new HashSet<>(sample.allowedMethods());
+                return (r, req) -> allowedMethods.contains(req.method().toUpperCase()) ? yes : no;
+            }, "allowedMethods");
+
+    private static final Map<Class<?>, Node> specializedFlows = new ConcurrentHashMap<>();
+
     public static Node get() {
-        return decisionFlow;
+        return compiledFlow;
+    }
+
+    // the default flow without the decisions whose answers are fixed by the resource class
+    public static Node specializedFor(Resource resource) {
+        return specializedFlows.computeIfAbsent(FlowSpecializer.keyFor(resource),
+                resourceClass -> FlowCompiler.compile(specializer.specialize(decisionFlow, resource)));
     }
 }
@@ -0,0 +1,78 @@
+package webster.decisions;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FlowCompiler {
+
+    public static CompiledFlow compile(Node root) {
+        if (root instanceof CompiledFlow) {
+            return (CompiledFlow) root;
+        }
+        return new FlowCompiler().add(root).build();
+    }
+
+    // node graphs share subtrees (e.g. entityOrNoContent), so nodes are indexed by identity and every node is
+    // compiled into exactly one state
+    private final Map<Node, Integer> indexes = new IdentityHashMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+
+    private FlowCompiler add(Node root) {
+        List<Node> pending = new ArrayList<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.remove(pending.size() - 1);
+            if (indexes.containsKey(node)) {
+                continue;
+            }
+            indexes.put(node, nodes.size());
+            nodes.add(node);
+            if (node instanceof Decision) {
+                pending.add(((Decision) node).onFalse());
+                pending.add(((Decision) node).onTrue());
+            } else if (node instanceof Action) {
+                pending.add(((Action) node).then());
+            }
+        }
+        return this;
+    }
+
+    private CompiledFlow build() {
+        int size = nodes.size();
+        int[] kinds = new int[size];
+        String[] names = new String[size];
+        Object[] functions = new Object[size];
+        int[] onTrue = new int[size];
+        int[] onFalse = new int[size];
+        for (int state = 0; state < size; state++) {
+            Node node = nodes.get(state);
+            if (node instanceof Decision) {
+                Decision decision = (Decision) node;
+                kinds[state] = CompiledFlow.DECISION;
+                names[state] = decision.name();
+                functions[state] = decision.decision();
+                onTrue[state] = indexes.get(decision.onTrue());
+                onFalse[state] = indexes.get(decision.onFalse());
+            } else if (node instanceof Action) {
+                Action action = (Action) node;
+                kinds[state] = CompiledFlow.ACTION;
+                names[state] = action.name();
+                functions[state] = action.action();
+                onTrue[state] = indexes.get(action.then());
+            } else if (node instanceof Completion) {
+                Completion completion = (Completion) node;
+                kinds[state] = CompiledFlow.COMPLETION;
+                names[state] = completion.name();
+                functions[state] = completion.completion();
+            } else {
+                // unknown node implementations are treated as opaque sub flows
+                kinds[state] = CompiledFlow.DELEGATE;
+                names[state] = node.getClass().getSimpleName();
+                functions[state] = node;
+            }
+        }
+        return new CompiledFlow(kinds, names, functions, onTrue, onFalse);
+    }
+}
@@ -0,0 +1,77 @@
+package webster.decisions;
+
+import webster.requestresponse.Request;
+
+// Watches compiled flows (see CompiledFlow#listenedBy). All calls are made on the thread that runs the flow, so
+// listeners must not block. Durations are in nanoseconds and cover the node's future, not just the call that created
+// it.
+public interface FlowListener {
+
+    // called when a request enters the flow of a route, null ignores the request
+    Events start(String route, Request request);
+
+    // both listeners watch the flow, e.g. metrics and traces
+    static FlowListener both(FlowListener first, FlowListener second) {
+        return (route, request) -> {
+            Events one = first.start(route, request);
+            Events other = second.start(route, request);
+            return one == null ? other : other == null ? one : new BothEvents(one, other);
+        };
+    }
+
+    interface Events {
+
+        void decided(String node, boolean result, long nanos);
+
+        void acted(String node, long nanos);
+
+        // a completion node or a sub flow that isn't compiled
+        void completed(String node, int status, long nanos);
+
+        void failed(String node, Throwable failure, long nanos);
+
+        // the whole flow, from entering it to the response. A failed flow finishes with 500.
+        void finished(int status, long nanos);
+    }
+
+    class BothEvents implements Events {
+
+        private final Events first;
+        private final Events second;
+
+        private BothEvents(Events first, Events second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void decided(String node, boolean result, long nanos) {
+            first.decided(node, result, nanos);
+            second.decided(node, result, nanos);
+        }
+
+        @Override
+        public void acted(String node, long nanos) {
+            first.acted(node, nanos);
+            second.acted(node, nanos);
+        }
+
+        @Override
+        public void completed(String node, int status, long nanos) {
+            first.completed(node, status, nanos);
+            second.completed(node, status, nanos);
+        }
+
+        @Override
+        public void failed(String node, Throwable failure, long nanos) {
+            first.failed(node, failure, nanos);
+            second.failed(node, failure, nanos);
+        }
+
+        @Override
+        public void finished(int status, long nanos) {
+            first.finished(status, nanos);
+            second.finished(status, nanos);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package webster.decisions;
+
+import webster.requestresponse.Request;
+import webster.resource.BlockingResource;
+import webster.resource.BlockingResourceAdapter;
+import webster.resource.Resource;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Rewrites a node graph for a concrete resource class. Decisions registered with fold(...) are replaced by one of
+// their branches if none of the resource methods they depend on is overridden, because the answer is then fixed by
+// the Resource defaults. Decisions registered with replace(...) get a cheaper function under the same condition,
+// e.g. one that uses a set computed once instead of calling knownMethods() on every request.
+public class FlowSpecializer {
+
+    private final Map<BiFunction<Resource, Request, CompletableFuture<Boolean>>, Specialization> specializations =
+            new IdentityHashMap<>();
+
+    public FlowSpecializer fold(BiFunction<Resource, Request, CompletableFuture<Boolean>> decision,
+                                boolean answer,
+                                String... resourceMethods) {
+        specializations.put(decision, new Specialization(resource -> null, answer, methods(resourceMethods)));
+        return this;
+    }
+
+    public FlowSpecializer replace(BiFunction<Resource, Request, CompletableFuture<Boolean>> decision,
+                                   Function<Resource, BiFunction<Resource, Request, CompletableFuture<Boolean>>> replacement,
+                                   String... resourceMethods) {
+        specializations.put(decision, new Specialization(replacement, null, methods(resourceMethods)));
+        return this;
+    }
+
+    // the sample resource is used by replacements to hoist values of methods that aren't overridden
+    public Node specialize(Node root, Resource sample) {
+        return new Rewrite(sample).rewrite(root);
+    }
+
+    // resources of the same key share a specialized flow
+    public static Class<?> keyFor(Resource resource) {
+        return resource instanceof BlockingResourceAdapter
+                ? ((BlockingResourceAdapter) resource).unwrap().getClass()
+                : resource.getClass();
+    }
+
+    private static Class<?> defaultsFor(Resource resource) {
+        return resource instanceof BlockingResourceAdapter ? BlockingResource.class : Resource.class;
+    }
+
+    private class Rewrite {
+
+        private final Resource sample;
+        private final Class<?> resourceClass;
+        private final Class<?> defaults;
+        private final Map<Node, Node> rewritten = new IdentityHashMap<>();
+
+        private Rewrite(Resource sample) {
+            this.sample = sample;
+            this.resourceClass = keyFor(sample);
+            this.defaults = defaultsFor(sample);
+        }
+
+        private Node rewrite(Node node) {
+            Node done = rewritten.get(node);
+            if (done == null) {
+                done = rewriteUncached(node);
+                rewritten.put(node, done);
+            }
+            return done;
+        }
+
+        private Node rewriteUncached(Node node) {
+            if (node instanceof Decision) {
+                Decision decision = (Decision) node;
+                Specialization specialization = specializations.get(decision.decision());
+                if (specialization != null && specialization.appliesTo(resourceClass, defaults)) {
+                    if (specialization.answer != null) {
+                        return rewrite(specialization.answer ? decision.onTrue() : decision.onFalse());
+                    }
+                    return new Decision(decision.name(), specialization.replacement.apply(sample),
+                            rewrite(decision.onTrue()), rewrite(decision.onFalse()));
+                }
+                return new Decision(decision.name(), decision.decision(),
+                        rewrite(decision.onTrue()), rewrite(decision.onFalse()));
+            } else if (node instanceof Action) {
+                Action action = (Action) node;
+                return new Action(action.name(), action.action(), rewrite(action.then()));
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private static class Specialization {
+
+        private final Function<Resource, BiFunction<Resource, Request, CompletableFuture<Boolean>>> replacement;
+        private final Boolean answer;
+        private final List<Method> resourceMethods;
+
+        private Specialization(Function<Resource, BiFunction<Resource, Request, CompletableFuture<Boolean>>> replacement,
+                               Boolean answer,
+                               List<Method> resourceMethods) {
+            this.replacement = replacement;
+            this.answer = answer;
+            this.resourceMethods = resourceMethods;
+        }
+
+        private boolean appliesTo(Class<?> resourceClass, Class<?> defaults) {
+            return resourceMethods.stream().noneMatch(method -> isOverridden(resourceClass, defaults, method));
+        }
+    }
+
+    private static List<Method> methods(String... names) {
+        List<Method> methods = new ArrayList<>();
+        for (String name : names) {
+            try {
+                methods.add(Resource.class.getMethod(name, Request.class));
+            } catch (NoSuchMethodException e) {
+                try {
+                    methods.add(Resource.class.getMethod(name));
+                } catch (NoSuchMethodException noArgs) {
+                    throw new IllegalArgumentException("no such resource method: " + name, noArgs);
+                }
+            }
+        }
+        return methods;
+    }
+
+    // true if the method is declared by the type, a superclass or an interface other than the one holding the
+    // default implementation
+    static boolean isOverridden(Class<?> type, Class<?> defaults, Method method) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            if (declares(c, method)) {
+                return true;
+            }
+            for (Class<?> i : c.getInterfaces()) {
+                if (isOverriddenByInterface(i, defaults, method)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOverriddenByInterface(Class<?> type, Class<?> defaults, Method method) {
+        if (type == defaults) {
+            return false;
+        }
+        if (declares(type, method)) {
+            return true;
+        }
+        for (Class<?> i : type.getInterfaces()) {
+            if (isOverriddenByInterface(i, defaults, method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean declares(Class<?> type, Method method) {
+        try {
+            type.getDeclaredMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
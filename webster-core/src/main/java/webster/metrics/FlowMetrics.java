@@ -0,0 +1,122 @@
+package webster.metrics;
+
+import webster.decisions.FlowListener;
+import webster.requestresponse.Request;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histograms and counters per route and per node of the route's flow. Recording takes two map lookups and a
+// few atomic increments, nothing is allocated once a route's nodes have been seen.
+public class FlowMetrics implements FlowListener {
+
+    private final ConcurrentMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    @Override
+    public Events start(String route, Request request) {
+        RouteMetrics metrics = routes.get(route);
+        return metrics != null ? metrics : routes.computeIfAbsent(route, RouteMetrics::new);
+    }
+
+    public Map<String, RouteMetrics> routes() {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    public static class RouteMetrics implements Events {
+
+        private final String route;
+        private final Histogram latency = new Histogram();
+        // indexed by status code
+        private final AtomicLongArray responses = new AtomicLongArray(600);
+        private final ConcurrentMap<String, NodeMetrics> nodes = new ConcurrentHashMap<>();
+
+        private RouteMetrics(String route) {
+            this.route = route;
+        }
+
+        public String route() {
+            return route;
+        }
+
+        public Histogram latency() {
+            return latency;
+        }
+
+        public long responses(int status) {
+            return status >= 0 && status < responses.length() ? responses.get(status) : 0;
+        }
+
+        public Map<String, NodeMetrics> nodes() {
+            return Collections.unmodifiableMap(nodes);
+        }
+
+        @Override
+        public void decided(String node, boolean result, long nanos) {
+            NodeMetrics metrics = node(node);
+            metrics.latency.record(nanos);
+            (result ? metrics.trueCount : metrics.falseCount).increment();
+        }
+
+        @Override
+        public void acted(String node, long nanos) {
+            node(node).latency.record(nanos);
+        }
+
+        @Override
+        public void completed(String node, int status, long nanos) {
+            node(node).latency.record(nanos);
+        }
+
+        @Override
+        public void failed(String node, Throwable failure, long nanos) {
+            NodeMetrics metrics = node(node);
+            metrics.latency.record(nanos);
+            metrics.failures.increment();
+        }
+
+        @Override
+        public void finished(int status, long nanos) {
+            latency.record(nanos);
+            if (status >= 0 && status < responses.length()) {
+                responses.incrementAndGet(status);
+            }
+        }
+
+        private NodeMetrics node(String name) {
+            NodeMetrics metrics = nodes.get(name);
+            return metrics != null ? metrics : nodes.computeIfAbsent(name, n -> new NodeMetrics());
+        }
+    }
+
+    public static class NodeMetrics {
+
+        private final Histogram latency = new Histogram();
+        private final LongAdder trueCount = new LongAdder();
+        private final LongAdder falseCount = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        private NodeMetrics() {
+        }
+
+        public Histogram latency() {
+            return latency;
+        }
+
+        // decisions only
+        public long decisions(boolean result) {
+            return result ? trueCount.sum() : falseCount.sum();
+        }
+
+        public long failures() {
+            return failures.sum();
+        }
+
+        public boolean isDecision() {
+            return trueCount.sum() + falseCount.sum() > 0;
+        }
+    }
+}
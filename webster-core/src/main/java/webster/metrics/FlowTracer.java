@@ -0,0 +1,182 @@
+package webster.metrics;
+
+import webster.decisions.FlowListener;
+import webster.requestresponse.Request;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Records the nodes a request passes through, with their results and durations, for requests carrying the trace
+// header and a sample of the others. Traces are written into a ring of preallocated slots, so tracing a request
+// allocates nothing but the header lookup, and the oldest trace is overwritten by the next one. A request that gets a
+// slot which is still being written, i.e. whose request hasn't finished yet, isn't traced.
+public class FlowTracer implements FlowListener {
+
+    public static final String traceHeader = "X-Webster-Trace";
+
+    private static final int EMPTY = 0;
+    private static final int WRITING = 1;
+    private static final int DONE = 2;
+
+    private static final int ACTED = -1;
+    private static final int FAILED = -2;
+
+    private final Slot[] slots;
+    private final double sampleRate;
+    private final AtomicLong ids = new AtomicLong();
+
+    // e.g. a sample rate of 0.001 traces one in a thousand requests, 0 only requests with the trace header
+    public FlowTracer(double sampleRate) {
+        this(256, 64, sampleRate);
+    }
+
+    public FlowTracer(int traces, int maxSteps, double sampleRate) {
+        this.slots = new Slot[traces];
+        for (int i = 0; i < traces; i++) {
+            slots[i] = new Slot(maxSteps);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public Events start(String route, Request request) {
+        Optional<String> label = request.header(traceHeader).value();
+        if (!label.isPresent() && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return null;
+        }
+        long id = ids.getAndIncrement();
+        Slot slot = slots[(int) (id % slots.length)];
+        int state = slot.state.get();
+        if (state == WRITING || !slot.state.compareAndSet(state, WRITING)) {
+            return null;
+        }
+        slot.begin(id, route, request.method(), request.uri(), label.orElse(null));
+        return slot;
+    }
+
+    // the finished traces, newest first
+    public List<Trace> traces() {
+        List<Trace> traces = new ArrayList<>();
+        for (Slot slot : slots) {
+            if (slot.state.get() == DONE) {
+                long id = slot.id;
+                Trace trace = slot.snapshot();
+                // dropped if the slot was taken over while it was copied
+                if (slot.state.get() == DONE && slot.id == id) {
+                    traces.add(trace);
+                }
+            }
+        }
+        traces.sort((a, b) -> Long.compare(b.id(), a.id()));
+        return traces;
+    }
+
+    // written by one request at a time, on whatever thread runs its flow. The fields are published to readers by
+    // setting the state to DONE.
+    private static class Slot implements Events {
+
+        private final AtomicInteger state = new AtomicInteger(EMPTY);
+        private final String[] nodes;
+        // the result of a decision as 1 or 0, the status of a completion, ACTED or FAILED
+        private final int[] outcomes;
+        private final Throwable[] failures;
+        private final long[] nanos;
+
+        private volatile long id;
+        private String route;
+        private String method;
+        private String uri;
+        private String label;
+        private long startedAt;
+        private int steps;
+        private boolean truncated;
+        private int status;
+        private long totalNanos;
+
+        private Slot(int maxSteps) {
+            this.nodes = new String[maxSteps];
+            this.outcomes = new int[maxSteps];
+            this.failures = new Throwable[maxSteps];
+            this.nanos = new long[maxSteps];
+        }
+
+        private void begin(long id, String route, String method, String uri, String label) {
+            this.id = id;
+            this.route = route;
+            this.method = method;
+            this.uri = uri;
+            this.label = label;
+            this.startedAt = System.currentTimeMillis();
+            this.steps = 0;
+            this.truncated = false;
+        }
+
+        @Override
+        public void decided(String node, boolean result, long nanos) {
+            step(node, result ? 1 : 0, null, nanos);
+        }
+
+        @Override
+        public void acted(String node, long nanos) {
+            step(node, ACTED, null, nanos);
+        }
+
+        @Override
+        public void completed(String node, int status, long nanos) {
+            step(node, status, null, nanos);
+        }
+
+        @Override
+        public void failed(String node, Throwable failure, long nanos) {
+            step(node, FAILED, failure, nanos);
+        }
+
+        @Override
+        public void finished(int status, long nanos) {
+            this.status = status;
+            this.totalNanos = nanos;
+            state.set(DONE);
+        }
+
+        private void step(String node, int outcome, Throwable failure, long nanos) {
+            if (steps == nodes.length) {
+                truncated = true;
+                return;
+            }
+            this.nodes[steps] = node;
+            this.outcomes[steps] = outcome;
+            this.failures[steps] = failure;
+            this.nanos[steps] = nanos;
+            steps++;
+        }
+
+        private Trace snapshot() {
+            int count = Math.min(steps, nodes.length);
+            List<Trace.Step> copied = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                copied.add(new Trace.Step(nodes[i], outcomeOf(i), nanos[i]));
+            }
+            return new Trace(id, route, method, uri, label, Instant.ofEpochMilli(startedAt), status, totalNanos,
+                    Collections.unmodifiableList(copied), truncated);
+        }
+
+        private String outcomeOf(int step) {
+            switch (outcomes[step]) {
+                case ACTED:
+                    return "done";
+                case FAILED:
+                    return String.valueOf(failures[step]);
+                default:
+                    // decisions are the only nodes with outcomes below 100
+                    return outcomes[step] == 1 ? "true" : outcomes[step] == 0 ? "false"
+                            : String.valueOf(outcomes[step]);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package webster.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts values in log-linear buckets, like HdrHistogram: values below 16 have a bucket each, every power of two
+// above is split into 16 buckets of equal width. Quantiles are therefore off by less than 1/16 of the value. Recording
+// never blocks, it's an atomic increment of a bucket plus the totals. Negative values are counted as 0, values above
+// highestTrackableValue (about 18 minutes in nanoseconds) as that value.
+public class Histogram {
+
+    private static final int subBucketBits = 4;
+    private static final int subBuckets = 1 << subBucketBits;
+    public static final long highestTrackableValue = (1L << 40) - 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(indexOf(highestTrackableValue) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        long v = value < 0 ? 0 : Math.min(value, highestTrackableValue);
+        buckets.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    // the highest value of the bucket holding the quantile, 0 if nothing has been recorded. Values recorded while
+    // this runs may or may not be taken into account.
+    public long valueAt(double quantile) {
+        long total = 0;
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max());
+            }
+        }
+        return max();
+    }
+
+    static int indexOf(long value) {
+        if (value < subBuckets) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - subBucketBits;
+        return subBuckets + shift * subBuckets + (int) (value >>> shift) - subBuckets;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < subBuckets) {
+            return index;
+        }
+        int shift = (index - subBuckets) / subBuckets;
+        long lowest = (long) (subBuckets + (index - subBuckets) % subBuckets) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
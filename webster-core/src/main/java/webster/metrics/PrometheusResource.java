@@ -0,0 +1,113 @@
+package webster.metrics;
+
+import webster.requestresponse.Request;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.resource.Resource;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+// Exposes flow metrics in the Prometheus text format. Latencies are summaries in seconds.
+public class PrometheusResource implements Resource {
+
+    private static final double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+
+    private final FlowMetrics metrics;
+
+    public PrometheusResource(FlowMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public Set<String> supportedMediaTypes() {
+        return Collections.singleton("text/plain");
+    }
+
+    @Override
+    public CompletableFuture<ResponseBody> entity(Request request) {
+        return CompletableFuture.completedFuture(Responses.bodyFrom(render()));
+    }
+
+    public String render() {
+        Map<String, FlowMetrics.RouteMetrics> routes = new TreeMap<>(metrics.routes());
+        StringBuilder out = new StringBuilder();
+
+        out.append("# TYPE webster_request_seconds summary\n");
+        routes.forEach((route, r) -> summary(out, "webster_request_seconds", labels("route", route), r.latency()));
+
+        out.append("# TYPE webster_responses_total counter\n");
+        routes.forEach((route, r) -> {
+            for (int status = 100; status < 600; status++) {
+                long count = r.responses(status);
+                if (count > 0) {
+                    sample(out, "webster_responses_total",
+                            labels("route", route) + ",status=\"" + status + "\"", count);
+                }
+            }
+        });
+
+        out.append("# TYPE webster_node_seconds summary\n");
+        routes.forEach((route, r) -> new TreeMap<>(r.nodes()).forEach((node, n) ->
+                summary(out, "webster_node_seconds", labels("route", route) + "," + labels("node", node),
+                        n.latency())));
+
+        out.append("# TYPE webster_decisions_total counter\n");
+        routes.forEach((route, r) -> new TreeMap<>(r.nodes()).forEach((node, n) -> {
+            if (n.isDecision()) {
+                String labels = labels("route", route) + "," + labels("node", node);
+                sample(out, "webster_decisions_total", labels + ",result=\"true\"", n.decisions(true));
+                sample(out, "webster_decisions_total", labels + ",result=\"false\"", n.decisions(false));
+            }
+        }));
+
+        out.append("# TYPE webster_node_failures_total counter\n");
+        routes.forEach((route, r) -> new TreeMap<>(r.nodes()).forEach((node, n) -> {
+            if (n.failures() > 0) {
+                sample(out, "webster_node_failures_total", labels("route", route) + "," + labels("node", node),
+                        n.failures());
+            }
+        }));
+        return out.toString();
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, Histogram histogram) {
+        for (double quantile : quantiles) {
+            out.append(name).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(histogram.valueAt(quantile))).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ").append(seconds(histogram.sum())).append('\n');
+        sample(out, name + "_count", labels, histogram.count());
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static String labels(String name, String value) {
+        StringBuilder escaped = new StringBuilder(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                escaped.append('\\').append(c);
+            } else if (c == '\n') {
+                escaped.append("\\n");
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.append('"').toString();
+    }
+}
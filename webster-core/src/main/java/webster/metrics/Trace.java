@@ -0,0 +1,127 @@
+package webster.metrics;
+
+import java.time.Instant;
+import java.util.List;
+
+// The path a request took through a flow, see FlowTracer
+public class Trace {
+
+    private final long id;
+    private final String route;
+    private final String method;
+    private final String uri;
+    private final String label;
+    private final Instant startedAt;
+    private final int status;
+    private final long nanos;
+    private final List<Step> steps;
+    private final boolean truncated;
+
+    Trace(long id, String route, String method, String uri, String label, Instant startedAt, int status, long nanos,
+          List<Step> steps, boolean truncated) {
+        this.id = id;
+        this.route = route;
+        this.method = method;
+        this.uri = uri;
+        this.label = label;
+        this.startedAt = startedAt;
+        this.status = status;
+        this.nanos = nanos;
+        this.steps = steps;
+        this.truncated = truncated;
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public String route() {
+        return route;
+    }
+
+    public String method() {
+        return method;
+    }
+
+    public String uri() {
+        return uri;
+    }
+
+    // the value of the trace header, null if the request was sampled
+    public String label() {
+        return label;
+    }
+
+    public Instant startedAt() {
+        return startedAt;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    public List<Step> steps() {
+        return steps;
+    }
+
+    // the flow took more steps than the tracer keeps
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder()
+                .append("trace ").append(id).append(' ').append(method).append(' ').append(uri)
+                .append(" route=").append(route);
+        if (label != null) {
+            out.append(" label=").append(label);
+        }
+        out.append(" status=").append(status).append(' ').append(millis(nanos)).append(" at ").append(startedAt)
+                .append('\n');
+        steps.forEach(step -> out.append("  ").append(step).append('\n'));
+        if (truncated) {
+            out.append("  ...\n");
+        }
+        return out.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+
+    public static class Step {
+
+        private final String node;
+        private final String outcome;
+        private final long nanos;
+
+        Step(String node, String outcome, long nanos) {
+            this.node = node;
+            this.outcome = outcome;
+            this.nanos = nanos;
+        }
+
+        public String node() {
+            return node;
+        }
+
+        // true or false for decisions, the status for completions, the exception if the node failed
+        public String outcome() {
+            return outcome;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return node + " -> " + outcome + " " + millis(nanos);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package webster.metrics;
+
+import webster.requestresponse.Request;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.resource.Resource;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+// Lists the traces of a FlowTracer as text, newest first. The label parameter selects the traces of requests whose
+// trace header had that value, the id parameter a single trace.
+public class TraceResource implements Resource {
+
+    private final FlowTracer tracer;
+
+    public TraceResource(FlowTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public Set<String> supportedMediaTypes() {
+        return Collections.singleton("text/plain");
+    }
+
+    @Override
+    public CompletableFuture<ResponseBody> entity(Request request) {
+        Optional<String> label = request.param("label").value();
+        Optional<String> id = request.param("id").value();
+        String traces = tracer.traces().stream()
+                .filter(trace -> !label.isPresent() || label.get().equals(trace.label()))
+                .filter(trace -> !id.isPresent() || id.get().equals(String.valueOf(trace.id())))
+                .map(Trace::toString)
+                .collect(Collectors.joining("\n"));
+        return CompletableFuture.completedFuture(Responses.bodyFrom(traces));
+    }
+}
@@ -0,0 +1,32 @@
+package webster.netty;
+
+import io.netty.channel.ChannelConfig;
+
+// Auto read of a connection is off while anyone asks for a pause, so that a streamed request body and the limit on
+// pipelined requests don't switch reads back on for each other. Only used on the event loop.
+class AutoRead {
+
+    private final ChannelConfig config;
+    private int pauses = 0;
+
+    AutoRead(ChannelConfig config) {
+        this.config = config;
+    }
+
+    void pause() {
+        if (pauses++ == 0) {
+            config.setAutoRead(false);
+        }
+    }
+
+    // every pause has to be followed by exactly one resume
+    void resume() {
+        if (--pauses == 0) {
+            config.setAutoRead(true);
+        }
+    }
+
+    boolean isPaused() {
+        return pauses > 0;
+    }
+}
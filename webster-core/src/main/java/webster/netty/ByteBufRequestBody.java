@@ -0,0 +1,43 @@
+package webster.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import webster.requestresponse.RequestBody;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+// The content of an aggregated request. Reads use absolute indices, so they don't depend on how far a stream over the
+// same content has been read. The content is only valid until the request has been answered.
+class ByteBufRequestBody implements RequestBody {
+
+    private final ByteBuf content;
+    private final int offset;
+    private final int length;
+
+    ByteBufRequestBody(ByteBuf content) {
+        this.content = content;
+        this.offset = content.readerIndex();
+        this.length = content.readableBytes();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public byte byteAt(int index) {
+        return content.getByte(offset + index);
+    }
+
+    @Override
+    public String decode(int index, int length, Charset charset) {
+        return content.toString(offset + index, length, charset);
+    }
+
+    @Override
+    public InputStream stream() {
+        return new ByteBufInputStream(content.slice(offset, length));
+    }
+}
@@ -0,0 +1,160 @@
+package webster.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Gzips a chunked body as it is written. Every chunk of the wrapped input is deflated into at most one output chunk,
+// so no more than a chunk of the body is held in memory at any time.
+class GzipEncoder implements ChunkedInput<ByteBuf> {
+
+    private static final byte[] header = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int trailerLength = 8;
+
+    private final ChunkedInput<ByteBuf> input;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] buffer = new byte[8192];
+    private boolean headerWritten = false;
+    private boolean finished = false;
+    private long progress = 0;
+
+    GzipEncoder(ChunkedInput<ByteBuf> input, int level) {
+        this.input = input;
+        this.deflater = new Deflater(level, true);
+    }
+
+    // a complete gzip member of content, for bodies that are already in memory
+    static ByteBuf gzip(ByteBuf content, ByteBufAllocator allocator, int level) {
+        GzipEncoder encoder = new GzipEncoder(null, level);
+        try {
+            ByteBuf out = allocator.buffer(content.readableBytes() / 2 + header.length + trailerLength);
+            out.writeBytes(header);
+            encoder.update(content);
+            encoder.deflater.finish();
+            encoder.drain(out);
+            encoder.writeTrailer(out);
+            return out;
+        } finally {
+            encoder.deflater.end();
+        }
+    }
+
+    @Override
+    public boolean isEndOfInput() throws Exception {
+        return finished;
+    }
+
+    // deflates a chunk of a body that is pushed rather than pulled, the result may be empty
+    ByteBuf encode(ByteBuf chunk, ByteBufAllocator allocator) {
+        ByteBuf out = allocator.buffer();
+        if (!headerWritten) {
+            out.writeBytes(header);
+            headerWritten = true;
+        }
+        update(chunk);
+        drain(out);
+        progress += out.readableBytes();
+        return out;
+    }
+
+    // the rest of a pushed body, ends the encoder
+    ByteBuf finish(ByteBufAllocator allocator) {
+        ByteBuf out = allocator.buffer();
+        if (!headerWritten) {
+            out.writeBytes(header);
+            headerWritten = true;
+        }
+        deflater.finish();
+        drain(out);
+        writeTrailer(out);
+        finished = true;
+        deflater.end();
+        return out;
+    }
+
+    @Override
+    public void close() throws Exception {
+        deflater.end();
+        if (input != null) {
+            input.close();
+        }
+    }
+
+    @Deprecated
+    @Override
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+        if (finished) {
+            return null;
+        }
+        ByteBuf out = allocator.buffer();
+        if (!headerWritten) {
+            out.writeBytes(header);
+            headerWritten = true;
+        }
+        int headerBytes = out.readableBytes();
+        // small input chunks may not produce any deflated output, so keep reading until there is some
+        while (out.readableBytes() == headerBytes) {
+            ByteBuf chunk = input.readChunk(allocator);
+            if (chunk == null) {
+                if (input.isEndOfInput()) {
+                    deflater.finish();
+                    drain(out);
+                    writeTrailer(out);
+                    finished = true;
+                }
+                break;
+            }
+            try {
+                update(chunk);
+            } finally {
+                chunk.release();
+            }
+            drain(out);
+        }
+        if (!out.isReadable()) {
+            // the input has nothing to offer right now
+            out.release();
+            return null;
+        }
+        progress += out.readableBytes();
+        return out;
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public long progress() {
+        return progress;
+    }
+
+    private void update(ByteBuf chunk) {
+        byte[] bytes = new byte[chunk.readableBytes()];
+        chunk.readBytes(bytes);
+        crc.update(bytes, 0, bytes.length);
+        deflater.setInput(bytes);
+    }
+
+    private void drain(ByteBuf out) {
+        for (int n = deflater.deflate(buffer); n > 0; n = deflater.deflate(buffer)) {
+            out.writeBytes(buffer, 0, n);
+        }
+    }
+
+    private void writeTrailer(ByteBuf out) {
+        out.writeIntLE((int) crc.getValue());
+        out.writeIntLE(deflater.getTotalIn());
+    }
+}
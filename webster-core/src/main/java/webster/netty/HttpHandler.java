@@ -1,106 +1,290 @@
 package webster.netty;
 
-import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedFile;
 import io.netty.handler.stream.ChunkedStream;
 import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import webster.requestresponse.*;
+import webster.requestresponse.parsing.Parsers;
 import webster.util.Futures;
+import webster.util.Offload;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedChannelException;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
-import java.util.Collections;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
-import static io.netty.handler.codec.http.HttpHeaders.Names.*;
-import static io.netty.handler.codec.http.HttpHeaders.is100ContinueExpected;
-import static io.netty.handler.codec.http.HttpHeaders.isKeepAlive;
+import static io.netty.handler.codec.http.HttpHeaderNames.*;
+import static io.netty.handler.codec.http.HttpUtil.is100ContinueExpected;
+import static io.netty.handler.codec.http.HttpUtil.isKeepAlive;
 import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
-public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+// Handles FullHttpRequests if the server aggregates request bodies, otherwise an HttpRequest followed by HttpContents.
+public class HttpHandler extends SimpleChannelInboundHandler<HttpObject> {
 
     private static final Logger logger = LoggerFactory.getLogger(HttpHandler.class);
+    // trades a little compression for speed, like most servers do
+    private static final int compressionLevel = 6;
+    static final int defaultMaxPipelinedRequests = 16;
 
     private final Function<Request, CompletableFuture<Response>> requestHandler;
     private final ExecutorService executor;
     private final long timeoutMillis;
+    private final boolean nonBlockingHandlers;
+    // smallest body worth compressing, negative if responses are never compressed
+    private final int compressionThreshold;
+    private final int maxPipelinedRequests;
+
+    // only accessed on the event loop
+    private AutoRead autoRead;
+    private ResponseSequencer responses;
+    // body of the request being streamed
+    private StreamingRequestBody streamingBody;
+    private PublisherWriter publisherWriter;
 
     public HttpHandler(Function<Request, CompletableFuture<Response>> requestHandler,
                        ExecutorService executor,
                        long timeoutMillis) {
+        this(requestHandler, executor, timeoutMillis, false);
+    }
+
+    public HttpHandler(Function<Request, CompletableFuture<Response>> requestHandler,
+                       ExecutorService executor,
+                       long timeoutMillis,
+                       boolean nonBlockingHandlers) {
+        this(requestHandler, executor, timeoutMillis, nonBlockingHandlers, -1);
+    }
+
+    public HttpHandler(Function<Request, CompletableFuture<Response>> requestHandler,
+                       ExecutorService executor,
+                       long timeoutMillis,
+                       boolean nonBlockingHandlers,
+                       int compressionThreshold) {
+        this(requestHandler, executor, timeoutMillis, nonBlockingHandlers, compressionThreshold,
+                defaultMaxPipelinedRequests);
+    }
+
+    // reads are paused while maxPipelinedRequests requests of the connection wait for their responses
+    public HttpHandler(Function<Request, CompletableFuture<Response>> requestHandler,
+                       ExecutorService executor,
+                       long timeoutMillis,
+                       boolean nonBlockingHandlers,
+                       int compressionThreshold,
+                       int maxPipelinedRequests) {
         super(false);
         this.requestHandler = requestHandler;
         this.executor = executor;
         this.timeoutMillis = timeoutMillis;
+        this.nonBlockingHandlers = nonBlockingHandlers;
+        this.compressionThreshold = compressionThreshold;
+        this.maxPipelinedRequests = maxPipelinedRequests;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        autoRead = new AutoRead(ctx.channel().config());
+        responses = new ResponseSequencer(ctx, autoRead, maxPipelinedRequests);
     }
 
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) {
+        responses.onReadComplete();
+        if (streamingBody != null) {
+            streamingBody.onReadComplete();
+        }
         ctx.flush();
     }
 
     @Override
-    public void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) throws Exception {
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (streamingBody != null) {
+            streamingBody.onClose(new ClosedChannelException());
+        }
+        if (publisherWriter != null) {
+            publisherWriter.cancel();
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (publisherWriter != null && !publisherWriter.isDone()) {
+            publisherWriter.onWritabilityChanged();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelRead0(ChannelHandlerContext ctx, HttpObject msg) throws Exception {
+        responses.onRead();
+        if (msg instanceof FullHttpRequest) {
+            FullHttpRequest req = (FullHttpRequest) msg;
+            handleRequest(ctx, req, createRequest(req, new ByteBufRequestBody(req.content())), null);
+        } else if (msg instanceof HttpRequest) {
+            HttpRequest req = (HttpRequest) msg;
+            StreamingRequestBody body = new StreamingRequestBody(ctx, autoRead);
+            streamingBody = body;
+            handleRequest(ctx, req, createRequest(req, BodyChunks.asInputStream(body), body), body);
+        } else if (msg instanceof HttpContent) {
+            if (streamingBody != null) {
+                streamingBody.onContent((HttpContent) msg);
+            } else {
+                ReferenceCountUtil.release(msg);
+            }
+        } else {
+            ReferenceCountUtil.release(msg);
+        }
+    }
 
+    // streamedBody is null if the request has been aggregated
+    private void handleRequest(ChannelHandlerContext ctx, HttpRequest req, Request request,
+                               StreamingRequestBody streamedBody) {
         if (is100ContinueExpected(req)) {
             ctx.write(new DefaultFullHttpResponse(HTTP_1_1, CONTINUE));
         }
         boolean keepAlive = isKeepAlive(req);
-        Request request = createRequest(req);
+        boolean gzipAccepted = compressionThreshold >= 0
+                && !HttpMethod.HEAD.equals(req.method())
+                && Parsers.asGzipAccepted.apply(Optional.ofNullable(req.headers().get(ACCEPT_ENCODING)));
 
-        // requestHandler is a function that takes a request and creates a future. The creation of the future
-        // might block. That's why requestHandler#apply is run on another thread.
-        CompletableFuture<Response> timeout = timeoutResponseFuture();
-        CompletableFuture
-                .supplyAsync(() -> requestHandler.apply(request), executor) // creation of the future
-                .thenCompose(f -> f.exceptionally(Response::new)) // handle exceptions during future creation
+        // pipelined requests are handled concurrently, their responses are written in order
+        ResponseSequencer.Ticket ticket = responses.next();
+        // routes may replace the server's budget, the timeout follows the deadline
+        Deadline deadline = request.deadline();
+        deadline.setBudgetMillis(timeoutMillis);
+        CompletableFuture<Response> timeout = timeoutResponseFuture(deadline);
+        responseFuture(request)
                 .acceptEither(timeout, r -> {
-                    ReferenceCountUtil.release(req);
-                    handleResponse(r, ctx, keepAlive); // handle response of either timeout or requestHandler
+                    deadline.cancel();
+                    // a streamed body that wasn't read to the end is dropped together with the connection
+                    boolean bodyComplete = streamedBody == null || streamedBody.isComplete();
+                    if (streamedBody == null) {
+                        ReferenceCountUtil.release(req);
+                    } else {
+                        streamedBody.discard();
+                    }
+                    // handle response of either timeout or requestHandler
+                    ticket.respond(() -> handleResponse(r, ctx, keepAlive && bodyComplete, gzipAccepted, ticket));
                 })
                 .whenComplete((v, e) -> {
-                    if(e != null)
-                        exceptionCaught(ctx, e);
+                    if(e != null) {
+                        logger.error(e.getMessage(), e);
+                        // the 500 follows the responses to earlier requests and ends the connection
+                        ticket.respond(() -> respondWithErrorAndClose(ctx));
+                    }
                 });
     }
 
-    private CompletableFuture<Response> timeoutResponseFuture() {
-        return Futures.afterTimeout(new Response(500, Responses.bodyFrom("request processing timed out")), timeoutMillis);
+    private CompletableFuture<Response> responseFuture(Request request) {
+        if (nonBlockingHandlers) {
+            // handlers promise not to block, so the future is created on the event loop. If it's already completed,
+            // the response is written right away without handing it over to another thread. Blocking routes move
+            // themselves to the executor (see Offload).
+            try {
+                return requestHandler.apply(Offload.runningInline(request, executor)).exceptionally(Response::new);
+            } catch (Throwable e) {
+                return Futures.failed(e);
+            }
+        }
+        // requestHandler is a function that takes a request and creates a future. The creation of the future
+        // might block. That's why requestHandler#apply is run on another thread.
+        return CompletableFuture
+                .supplyAsync(() -> requestHandler.apply(request), executor) // creation of the future
+                .thenCompose(f -> f.exceptionally(Response::new)); // handle exceptions during future creation
+    }
+
+    private CompletableFuture<Response> timeoutResponseFuture(Deadline deadline) {
+        return deadline.expired().thenApply(v -> new Response(500, Responses.bodyFrom("request processing timed out")));
     }
 
-    private void handleResponse(Response response, ChannelHandlerContext context, boolean keepAlive) {
+    // writes without flushing, the sequencer flushes
+    private void handleResponse(Response response, ChannelHandlerContext context, boolean keepAlive,
+                                boolean gzipAccepted, ResponseSequencer.Ticket ticket) {
+        boolean compress = gzipAccepted
+                && response.isCompressible()
+                && !response.headers().containsKey("Content-Encoding")
+                && response.status() != 204 && response.status() != 304;
         response.body().process(new ResponseBodyProcessor<Void>() {
             @Override
             public Void process(StringResponseBody body) {
                 handleFullResponse(
-                        createFullResponse(response.status(), response.headers(), body.content()),
+                        createFullResponse(response.status(), response.headers(),
+                                encode(body.content(), response.headers(), context.alloc()), compress, context),
                         context, keepAlive);
                 return null;
             }
 
             @Override
             public Void process(InputStreamResponseBody body) {
-                handleStreamResponse(response.status(), response.headers(), body.content(), context, keepAlive);
+                handleStreamResponse(response.status(), response.headers(), body.content(), compress, context, keepAlive);
+                return null;
+            }
+
+            @Override
+            public Void process(PublisherResponseBody body) {
+                handlePublisherResponse(response.status(), response.headers(), body, compress, context, keepAlive,
+                        ticket);
                 return null;
             }
 
             @Override
             public Void process(EmptyResponseBody body) {
                 handleFullResponse(
-                        createFullResponse(response.status(), response.headers(), ""),
+                        createFullResponse(response.status(), response.headers(), Unpooled.buffer(0), false, context),
+                        context, keepAlive);
+                return null;
+            }
+
+            @Override
+            public Void process(FileResponseBody body) {
+                handleFileResponse(response.status(), response.headers(), body, context, keepAlive);
+                return null;
+            }
+
+            @Override
+            public Void process(ByteBufResponseBody body) {
+                handleFullResponse(
+                        createFullResponse(response.status(), response.headers(), body.content(), compress, context),
+                        context, keepAlive);
+                return null;
+            }
+
+            @Override
+            public Void process(ByteArrayResponseBody body) {
+                handleFullResponse(
+                        createFullResponse(response.status(), response.headers(),
+                                Unpooled.wrappedBuffer(body.content()), compress, context),
+                        context, keepAlive);
+                return null;
+            }
+
+            @Override
+            public Void process(ByteBufferResponseBody body) {
+                handleFullResponse(
+                        createFullResponse(response.status(), response.headers(),
+                                Unpooled.wrappedBuffer(body.content()), compress, context),
                         context, keepAlive);
                 return null;
             }
@@ -111,54 +295,160 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
         if (!keepAlive) {
             context.write(response).addListener(ChannelFutureListener.CLOSE);
         } else {
-            response.headers().set(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+            response.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
             context.write(response);
         }
-        context.flush();
     }
 
-    private void handleStreamResponse(int status, Map<String, String> headers, InputStream body,
+    private void handleStreamResponse(int status, Map<String, String> headers, InputStream body, boolean compress,
                                       ChannelHandlerContext context, boolean keepAlive) {
+        context.write(createStreamedResponse(status, headers, compress));
+
+        // written as HttpContents, which HTTP/2 streams can carry as well, ending with the last content
+        ChannelFuture lastContentFuture = context.write(new HttpChunkedInput(compress
+                ? new GzipEncoder(new ChunkedStream(body), compressionLevel)
+                : new ChunkedStream(body)));
+        if (!keepAlive) {
+            lastContentFuture.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private HttpResponse createStreamedResponse(int status, Map<String, String> headers, boolean compress) {
         // TODO no chunked encoding for http 1.0 clients
         HttpResponse response = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.valueOf(status));
-        response.headers().set(TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        response.headers().set(TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        headers.entrySet().stream().forEach(header ->
+                response.headers().set(header.getKey(), header.getValue()));
+        if (compress) {
+            // the length of a stream isn't known up front, so there is no threshold
+            response.headers().set(CONTENT_ENCODING, HttpHeaderValues.GZIP);
+            response.headers().remove(CONTENT_LENGTH);
+        }
+        return response;
+    }
+
+    private void handlePublisherResponse(int status, Map<String, String> headers, PublisherResponseBody body,
+                                         boolean compress, ChannelHandlerContext context, boolean keepAlive,
+                                         ResponseSequencer.Ticket ticket) {
+        context.write(createStreamedResponse(status, headers, compress));
+        // the chunks arrive after this returns, responses to later requests wait until the last one is written
+        ticket.hold();
+        PublisherWriter writer = new PublisherWriter(context,
+                compress ? new GzipEncoder(null, compressionLevel) : null, keepAlive, ticket::release);
+        // subscribed on the event loop, which is the only thread that touches the writer
+        context.executor().execute(() -> {
+            publisherWriter = writer;
+            body.content().subscribe(writer);
+        });
+    }
+
+    // runs as the write of a ticket, so a failure is answered in place of the response
+    private void handleFileResponse(int status, Map<String, String> headers, FileResponseBody body,
+                                    ChannelHandlerContext context, boolean keepAlive) {
+        RandomAccessFile file;
+        try {
+            file = new RandomAccessFile(body.content().toFile(), "r");
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            respondWithErrorAndClose(context);
+            return;
+        }
+        // sendfile can't be used if the bytes have to be encrypted or framed on their way out
+        boolean sendfile = context.pipeline().get(SslHandler.class) == null
+                && !(context.channel() instanceof Http2StreamChannel);
+        HttpChunkedInput chunked = null;
+        if (!sendfile) {
+            try {
+                chunked = new HttpChunkedInput(new ChunkedFile(file, 0, body.length(), 8192));
+            } catch (IOException e) {
+                closeQuietly(file);
+                logger.error(e.getMessage(), e);
+                respondWithErrorAndClose(context);
+                return;
+            }
+        }
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.valueOf(status));
+        response.headers().set(CONTENT_LENGTH, body.length());
         headers.entrySet().stream().forEach(header ->
                 response.headers().set(header.getKey(), header.getValue()));
+        if (keepAlive) {
+            response.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        }
         context.write(response);
 
-        context.write(new ChunkedStream(body));
-        ChannelFuture lastContentFuture = context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        ChannelFuture lastContentFuture;
+        if (sendfile) {
+            context.write(new DefaultFileRegion(file.getChannel(), 0, body.length()));
+            lastContentFuture = context.write(LastHttpContent.EMPTY_LAST_CONTENT);
+        } else {
+            lastContentFuture = context.write(chunked);
+        }
         if (!keepAlive) {
             lastContentFuture.addListener(ChannelFutureListener.CLOSE);
         }
     }
 
-    private FullHttpResponse createFullResponse(int status, Map<String, String> headers, String body) {
-        FullHttpResponse response = new DefaultFullHttpResponse(
-                HTTP_1_1,
-                HttpResponseStatus.valueOf(status),
-                body.isEmpty() ? Unpooled.buffer(0) : Unpooled.wrappedBuffer(body.getBytes(Charset.forName("UTF-8")))); // TODO charset
-        response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
+    private void closeQuietly(RandomAccessFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            logger.warn(e.getMessage(), e);
+        }
+    }
+
+    // encodes straight into a buffer of the channel's allocator, with the charset of the Content-Type or UTF-8
+    private ByteBuf encode(String body, Map<String, String> headers, ByteBufAllocator allocator) {
+        if (body.isEmpty()) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+        Charset charset = Parsers.asCharset.apply(Optional.ofNullable(headers.get("Content-Type")))
+                .orElse(StandardCharsets.UTF_8);
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            ByteBuf buffer = allocator.buffer(ByteBufUtil.utf8Bytes(body));
+            ByteBufUtil.writeUtf8(buffer, body);
+            return buffer;
+        }
+        return ByteBufUtil.encodeString(allocator, CharBuffer.wrap(body), charset);
+    }
+
+    private FullHttpResponse createFullResponse(int status, Map<String, String> headers, ByteBuf body,
+                                                boolean compress, ChannelHandlerContext context) {
+        boolean gzip = compress && body.readableBytes() >= compressionThreshold;
+        ByteBuf content = body;
+        if (gzip) {
+            content = GzipEncoder.gzip(body, context.alloc(), compressionLevel);
+            body.release();
+        }
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.valueOf(status), content);
         headers.entrySet().stream().forEach(header ->
                 response.headers().set(header.getKey(), header.getValue()));
+        response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
+        if (gzip) {
+            response.headers().set(CONTENT_ENCODING, HttpHeaderValues.GZIP);
+        }
         return response;
     }
 
-    private Request createRequest(FullHttpRequest req) {
-        InputStream body = new ByteBufInputStream(req.content());
-        Map<String, String> headers = new HashMap<>(req.headers().names().size());
-        for (String header : req.headers().names()) {
-            String headerValue = req.headers().getAll(header).stream().collect(Collectors.joining(","));
-            headers.put(header, headerValue);
-        }
-        QueryStringDecoder decoder = new QueryStringDecoder(req.getUri());// TODO charset
-        return new Request(req.getMethod().name(), decoder.path(), Collections.unmodifiableMap(headers), body,
-                decoder.parameters(), null, null);
+    private Request createRequest(HttpRequest req, InputStream body, BodyChunks bodyChunks) {
+        // the decoder splits off the path right away but decodes the parameters only when they're asked for
+        QueryStringDecoder decoder = new QueryStringDecoder(req.uri());// TODO charset
+        return new Request(req.method().name(), decoder.path(), new NettyHeaders(req.headers()), body,
+                bodyChunks, decoder::parameters, null, null);
+    }
+
+    private Request createRequest(FullHttpRequest req, ByteBufRequestBody body) {
+        QueryStringDecoder decoder = new QueryStringDecoder(req.uri());// TODO charset
+        return new Request(req.method().name(), decoder.path(), new NettyHeaders(req.headers()), body,
+                decoder::parameters, null, null);
     }
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         logger.error(cause.getMessage(), cause);
+        respondWithErrorAndClose(ctx);
+    }
+
+    private void respondWithErrorAndClose(ChannelHandlerContext ctx) {
         FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.valueOf(500));
         ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
     }
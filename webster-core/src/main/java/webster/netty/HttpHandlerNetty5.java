@@ -21,9 +21,9 @@ import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import static io.netty.handler.codec.http.HttpHeaders.Names.*;
-import static io.netty.handler.codec.http.HttpHeaders.is100ContinueExpected;
-import static io.netty.handler.codec.http.HttpHeaders.isKeepAlive;
+import static io.netty.handler.codec.http.HttpHeaderNames.*;
+import static io.netty.handler.codec.http.HttpUtil.is100ContinueExpected;
+import static io.netty.handler.codec.http.HttpUtil.isKeepAlive;
 import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
@@ -87,7 +87,7 @@ import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
         if (!keepAlive) {
             context.write(response).addListener(ChannelFutureListener.CLOSE);
         } else {
-            response.headers().set(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+            response.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
             context.write(response);
         }
         context.flush();
@@ -97,7 +97,7 @@ import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
                                       ChannelHandlerContext context, boolean keepAlive) {
         // TODO no chunked encoding for http 1.0 clients
         HttpResponse response = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.valueOf(status));
-        response.headers().set(TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        response.headers().set(TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
         headers.entrySet().stream().forEach(header ->
                 response.headers().set(header.getKey(), header.getValue()));
         context.write(response);
@@ -128,8 +128,8 @@ import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
             headers.put(header, headerValue);
             headers.put(header.toLowerCase(), headerValue);
         }
-        QueryStringDecoder decoder = new QueryStringDecoder(req.getUri());// TODO charset
-        return new Request(req.getMethod().name(), decoder.path(), Collections.unmodifiableMap(headers), body,
+        QueryStringDecoder decoder = new QueryStringDecoder(req.uri());// TODO charset
+        return new Request(req.method().name(), decoder.path(), Collections.unmodifiableMap(headers), body,
                 decoder.parameters(), null, null);
     }
 
@@ -0,0 +1,47 @@
+package webster.netty;
+
+import io.netty.handler.codec.http.HttpHeaders;
+import webster.requestresponse.Headers;
+import webster.util.Lazy;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+// Reads headers straight from the netty request, which already looks them up case-insensitively.
+class NettyHeaders implements Headers {
+
+    private final HttpHeaders headers;
+    private final Lazy<Map<String, String>> map;
+
+    NettyHeaders(HttpHeaders headers) {
+        this.headers = headers;
+        this.map = Lazy.of(() -> {
+            Map<String, String> all = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (String name : headers.names()) {
+                all.put(name, get(name).get());
+            }
+            return Collections.unmodifiableMap(all);
+        });
+    }
+
+    @Override
+    public Optional<String> get(String name) {
+        List<String> values = headers.getAll(name);
+        switch (values.size()) {
+            case 0:
+                return Optional.empty();
+            case 1:
+                return Optional.of(values.get(0));
+            default:
+                return Optional.of(String.join(",", values));
+        }
+    }
+
+    @Override
+    public Map<String, String> asMap() {
+        return map.get();
+    }
+}
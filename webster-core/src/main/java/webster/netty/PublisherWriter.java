@@ -0,0 +1,154 @@
+package webster.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+// Writes the chunks of a publisher as http content. Chunks are requested in small batches and only while the channel
+// is writable, so a slow client holds back the publisher instead of filling up the outbound buffer. Signals may
+// arrive on any thread, they are handed over to the event loop, which owns all state.
+class PublisherWriter implements Subscriber<ByteBuffer> {
+    private static final Logger logger = LoggerFactory.getLogger(PublisherWriter.class);
+
+    private static final int batch = 16;
+
+    private final ChannelHandlerContext ctx;
+    private final GzipEncoder gzip;
+    private final boolean keepAlive;
+    private final Runnable onEnd;
+
+    // event loop state
+    private Subscription subscription;
+    private int requested = 0;
+    private boolean done = false;
+
+    // gzip is null if the body isn't compressed
+    PublisherWriter(ChannelHandlerContext ctx, GzipEncoder gzip, boolean keepAlive) {
+        this(ctx, gzip, keepAlive, () -> {});
+    }
+
+    // onEnd is run on the event loop once the response is complete, cut short or cancelled
+    PublisherWriter(ChannelHandlerContext ctx, GzipEncoder gzip, boolean keepAlive, Runnable onEnd) {
+        this.ctx = ctx;
+        this.gzip = gzip;
+        this.keepAlive = keepAlive;
+        this.onEnd = onEnd;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        ctx.executor().execute(() -> {
+            if (done || subscription != null) {
+                s.cancel();
+                return;
+            }
+            subscription = s;
+            requestMore();
+        });
+    }
+
+    @Override
+    public void onNext(ByteBuffer chunk) {
+        ctx.executor().execute(() -> {
+            if (done) {
+                return;
+            }
+            requested--;
+            write(Unpooled.wrappedBuffer(chunk));
+            requestMore();
+        });
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        ctx.executor().execute(() -> {
+            if (done) {
+                return;
+            }
+            // the status line is out already, all that's left is to cut the response short
+            logger.warn(t.getMessage(), t);
+            ctx.close();
+            end();
+        });
+    }
+
+    @Override
+    public void onComplete() {
+        ctx.executor().execute(() -> {
+            if (done) {
+                return;
+            }
+            if (gzip != null) {
+                ctx.write(new DefaultHttpContent(gzip.finish(ctx.alloc())));
+            }
+            ChannelFuture lastContentFuture = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            if (!keepAlive) {
+                lastContentFuture.addListener(ChannelFutureListener.CLOSE);
+            }
+            end();
+        });
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    // called on the event loop
+    void onWritabilityChanged() {
+        requestMore();
+    }
+
+    // called on the event loop when the connection is gone
+    void cancel() {
+        if (!done) {
+            end();
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    private void write(ByteBuf chunk) {
+        ByteBuf content = chunk;
+        if (gzip != null) {
+            content = gzip.encode(chunk, ctx.alloc());
+            chunk.release();
+        }
+        if (content.isReadable()) {
+            ctx.writeAndFlush(new DefaultHttpContent(content)).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+        } else {
+            content.release();
+        }
+    }
+
+    // tops up the demand once half of it has been delivered
+    private void requestMore() {
+        if (!done && subscription != null && requested <= batch / 2 && ctx.channel().isWritable()) {
+            long n = batch - requested;
+            requested = batch;
+            subscription.request(n);
+        }
+    }
+
+    private void end() {
+        done = true;
+        if (gzip != null) {
+            try {
+                gzip.close();
+            } catch (Exception e) {
+                logger.warn(e.getMessage(), e);
+            }
+        }
+        onEnd.run();
+    }
+}
@@ -0,0 +1,134 @@
+package webster.netty;
+
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+// Writes the responses of pipelined requests in the order the requests arrived. Requests are handled concurrently,
+// a response that is ready before the ones of earlier requests waits until they have been written. Everything that is
+// ready is written in one go and flushed once, or not at all while the connection is being read, because the end
+// of the read flushes anyway. Reads are paused while maxOutstanding requests wait for their responses.
+// Only respond() may be called off the event loop. A write that throws is answered with 500 and ends the connection,
+// the responses to later requests are dropped with it.
+class ResponseSequencer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseSequencer.class);
+
+    private final ChannelHandlerContext ctx;
+    private final AutoRead autoRead;
+    private final int maxOutstanding;
+
+    // event loop state
+    private final Queue<Ticket> tickets = new ArrayDeque<>();
+    private boolean reading = false;
+    private boolean paused = false;
+    private boolean draining = false;
+
+    ResponseSequencer(ChannelHandlerContext ctx, AutoRead autoRead, int maxOutstanding) {
+        this.ctx = ctx;
+        this.autoRead = autoRead;
+        this.maxOutstanding = maxOutstanding;
+    }
+
+    // takes the place of the response of a request that has just arrived
+    Ticket next() {
+        Ticket ticket = new Ticket();
+        tickets.add(ticket);
+        limitReads();
+        return ticket;
+    }
+
+    void onRead() {
+        reading = true;
+    }
+
+    void onReadComplete() {
+        reading = false;
+    }
+
+    private void drain() {
+        if (draining) {
+            // a write released its own ticket, the loop below goes on with the next one
+            return;
+        }
+        draining = true;
+        boolean written = false;
+        try {
+            while (!tickets.isEmpty() && tickets.peek().write != null) {
+                Ticket ticket = tickets.peek();
+                if (!ticket.started) {
+                    ticket.started = true;
+                    written = true;
+                    try {
+                        ticket.write.run();
+                    } catch (RuntimeException e) {
+                        logger.error(e.getMessage(), e);
+                        tickets.clear();
+                        ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                                HttpResponseStatus.INTERNAL_SERVER_ERROR)).addListener(ChannelFutureListener.CLOSE);
+                        break;
+                    }
+                }
+                if (ticket.held) {
+                    // the body is still being written, the following responses have to wait for it
+                    break;
+                }
+                tickets.poll();
+            }
+        } finally {
+            draining = false;
+        }
+        if (written && !reading) {
+            ctx.flush();
+        }
+        limitReads();
+    }
+
+    private void limitReads() {
+        if (!paused && tickets.size() >= maxOutstanding) {
+            paused = true;
+            autoRead.pause();
+        } else if (paused && tickets.size() < maxOutstanding) {
+            paused = false;
+            autoRead.resume();
+        }
+    }
+
+    class Ticket {
+        private Runnable write;
+        private boolean started = false;
+        private boolean held = false;
+
+        // write is run on the event loop once the responses of all earlier requests are out. It writes without
+        // flushing.
+        void respond(Runnable write) {
+            if (ctx.executor().inEventLoop()) {
+                this.write = write;
+                drain();
+            } else {
+                ctx.executor().execute(() -> respond(write));
+            }
+        }
+
+        // called by a write that goes on after it has returned, the following responses wait for release()
+        void hold() {
+            held = true;
+        }
+
+        void release() {
+            if (ctx.executor().inEventLoop()) {
+                held = false;
+                drain();
+            } else {
+                ctx.executor().execute(this::release);
+            }
+        }
+    }
+}
@@ -2,17 +2,25 @@ package webster.netty;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpMessage;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.*;
 import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.AsciiString;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import webster.requestresponse.Request;
 import webster.requestresponse.Response;
+import webster.util.VirtualThreads;
 
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
@@ -24,54 +32,237 @@ public class Server {
     private final ExecutorService executorService;
     private final int port;
     private final long timeoutMillis;
+    private final boolean nonBlockingHandlers;
+    private final boolean nativeTransport;
+    private final int bossThreads;
+    private final int workerThreads;
+    private final int backlog;
+    private final boolean reusePort;
+    private final boolean tcpNoDelay;
+    private final boolean keepAlive;
+    private final boolean streamingBodies;
+    private final int maxContentLength;
+    private final int compressionThreshold;
+    private final int maxPipelinedRequests;
+    private final boolean http2;
 
     public Server(ExecutorService executorService, int port, long timeoutMillis) {
-        this.executorService = executorService;
-        this.port = port;
-        this.timeoutMillis = timeoutMillis;
+        this(executorService, port, timeoutMillis, false);
     }
 
+    public Server(ExecutorService executorService, int port, long timeoutMillis, boolean nonBlockingHandlers) {
+        this(new Builder()
+                .withExecutorService(executorService)
+                .withPort(port)
+                .withTimeoutMillis(timeoutMillis)
+                .withNonBlockingHandlers(nonBlockingHandlers));
+    }
+
+    private Server(Builder builder) {
+        this.executorService = builder.executorService;
+        this.port = builder.port;
+        this.timeoutMillis = builder.timeoutMillis;
+        this.nonBlockingHandlers = builder.nonBlockingHandlers;
+        this.nativeTransport = builder.nativeTransport;
+        this.bossThreads = builder.bossThreads;
+        this.workerThreads = builder.workerThreads;
+        this.backlog = builder.backlog;
+        this.reusePort = builder.reusePort;
+        this.tcpNoDelay = builder.tcpNoDelay;
+        this.keepAlive = builder.keepAlive;
+        this.streamingBodies = builder.streamingBodies;
+        this.maxContentLength = builder.maxContentLength;
+        this.compressionThreshold = builder.compressionThreshold;
+        this.maxPipelinedRequests = builder.maxPipelinedRequests;
+        this.http2 = builder.http2;
+    }
+
+    // blocks until the server is stopped
     public void run(Function<Request, CompletableFuture<Response>> requestHandler) {
-        EventLoopGroup bossGroup = new NioEventLoopGroup();
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        Running running = null;
+        try {
+            running = start(requestHandler);
+            running.awaitClose();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (running != null) {
+                running.close();
+            }
+        }
+    }
+
+    // returns as soon as the server is listening, e.g. for tests and load tests that run client and server in the
+    // same process. Port 0 picks a free port, see Running#port.
+    public Running start(Function<Request, CompletableFuture<Response>> requestHandler) throws InterruptedException {
+        Transport transport = Transport.select(nativeTransport);
+        EventLoopGroup bossGroup = transport.eventLoopGroup(bossThreads, "webster-boss");
+        EventLoopGroup workerGroup = transport.eventLoopGroup(workerThreads, "webster-worker");
+        boolean started = false;
         try {
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(transport.serverChannel())
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel socketChannel) throws Exception {
                             ChannelPipeline pipeline = socketChannel.pipeline();
-                            int maxContentLength = 64 * 1024;
-                            pipeline.addLast(new HttpServerCodec());
-                            pipeline.addLast(new HttpObjectAggregator(maxContentLength));
-                            pipeline.addLast(new ChunkedWriteHandler());
-                            pipeline.addLast(new HttpHandler(requestHandler, executorService, timeoutMillis));
+                            if (http2) {
+                                initCleartextHttp2(pipeline, requestHandler);
+                            } else {
+                                pipeline.addLast(new HttpServerCodec());
+                                initHttp1(pipeline, requestHandler);
+                            }
                         }
                     })
-                    .option(ChannelOption.SO_BACKLOG, 128)
-                    .childOption(ChannelOption.SO_KEEPALIVE, true);
+                    .option(ChannelOption.SO_BACKLOG, backlog)
+                    .childOption(ChannelOption.SO_KEEPALIVE, keepAlive)
+                    .childOption(ChannelOption.TCP_NODELAY, tcpNoDelay);
 
-            ChannelFuture f = b.bind(port).sync();
-            logger.info("listening on port " + port);
+            // with SO_REUSEPORT every boss thread binds a socket of its own and the kernel spreads the
+            // connections across them, otherwise a single boss thread accepts all connections
+            int binds = 1;
+            if (reusePort && transport.isNative()) {
+                b.option(EpollChannelOption.SO_REUSEPORT, true);
+                binds = bossThreads;
+            } else if (reusePort) {
+                logger.warn("SO_REUSEPORT requires the native epoll transport, binding a single socket");
+            }
 
-            // wait until server socket is closed
-            f.channel().closeFuture().sync();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            List<Channel> channels = new ArrayList<>();
+            channels.add(b.bind(port).sync().channel());
+            // the other sockets share the port of the first one, which matters if the port was picked
+            int boundPort = ((InetSocketAddress) channels.get(0).localAddress()).getPort();
+            for (int i = 1; i < binds; i++) {
+                channels.add(b.bind(boundPort).sync().channel());
+            }
+            logger.info("listening on port " + boundPort + " (" + (transport.isNative() ? "epoll" : "nio") + ", "
+                    + binds + " socket(s))");
+            started = true;
+            return new Running(channels, boundPort, bossGroup, workerGroup);
         } finally {
-            workerGroup.shutdownGracefully();
-            bossGroup.shutdownGracefully();
+            if (!started) {
+                workerGroup.shutdownGracefully();
+                bossGroup.shutdownGracefully();
+            }
+        }
+    }
+
+    public static class Running implements AutoCloseable {
+
+        private final List<Channel> channels;
+        private final int port;
+        private final EventLoopGroup bossGroup;
+        private final EventLoopGroup workerGroup;
+
+        private Running(List<Channel> channels, int port, EventLoopGroup bossGroup, EventLoopGroup workerGroup) {
+            this.channels = channels;
+            this.port = port;
+            this.bossGroup = bossGroup;
+            this.workerGroup = workerGroup;
+        }
+
+        public int port() {
+            return port;
+        }
+
+        // waits until the server sockets are closed
+        public void awaitClose() throws InterruptedException {
+            for (Channel channel : channels) {
+                channel.closeFuture().sync();
+            }
+        }
+
+        // stops accepting connections and closes the open ones, returns once the event loops have terminated
+        @Override
+        public void close() {
+            for (Channel channel : channels) {
+                channel.close().syncUninterruptibly();
+            }
+            workerGroup.shutdownGracefully().syncUninterruptibly();
+            bossGroup.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    // everything after the codec, the same for HTTP/1.1 connections and HTTP/2 streams
+    private void initHttp1(ChannelPipeline pipeline, Function<Request, CompletableFuture<Response>> requestHandler) {
+        if (!streamingBodies) {
+            pipeline.addLast(new HttpObjectAggregator(maxContentLength));
         }
+        pipeline.addLast(new ChunkedWriteHandler());
+        pipeline.addLast(new HttpHandler(requestHandler, executorService, timeoutMillis, nonBlockingHandlers,
+                compressionThreshold, maxPipelinedRequests));
+    }
+
+    // HTTP/2 is spoken right away if the client starts with the connection preface (prior knowledge) or after an
+    // upgrade from HTTP/1.1 with Upgrade: h2c. Every stream becomes a channel of its own that sees HttpObjects, so
+    // it is served by the same handlers as an HTTP/1.1 connection.
+    void initCleartextHttp2(ChannelPipeline pipeline,
+                            Function<Request, CompletableFuture<Response>> requestHandler) {
+        Http2MultiplexHandler streams = new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel stream) {
+                stream.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true));
+                initHttp1(stream.pipeline(), requestHandler);
+            }
+        });
+        HttpServerCodec codec = new HttpServerCodec();
+        HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(codec, protocol ->
+                AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)
+                        ? new Http2ServerUpgradeCodec(Http2FrameCodecBuilder.forServer().build(), streams)
+                        : null,
+                maxContentLength);
+        pipeline.addLast(new CleartextHttp2ServerUpgradeHandler(codec, upgradeHandler,
+                new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void handlerAdded(ChannelHandlerContext ctx) {
+                        Http2FrameCodec frameCodec = Http2FrameCodecBuilder.forServer().build();
+                        ctx.pipeline().addAfter(ctx.name(), null, frameCodec);
+                        ctx.pipeline().addAfter(ctx.pipeline().context(frameCodec).name(), null, streams);
+                        ctx.pipeline().remove(this);
+                    }
+                }));
+        pipeline.addLast(new SimpleChannelInboundHandler<HttpMessage>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, HttpMessage msg) {
+                // no upgrade, the connection stays at HTTP/1.1
+                initHttp1(ctx.pipeline(), requestHandler);
+                ctx.fireChannelRead(ReferenceCountUtil.retain(msg));
+                ctx.pipeline().remove(this);
+            }
+
+            @Override
+            public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+                if (evt instanceof HttpServerUpgradeHandler.UpgradeEvent
+                        || evt instanceof CleartextHttp2ServerUpgradeHandler.PriorKnowledgeUpgradeEvent) {
+                    ctx.pipeline().remove(this);
+                }
+                super.userEventTriggered(ctx, evt);
+            }
+        });
     }
 
     public static class Builder {
         private ExecutorService executorService = ForkJoinPool.commonPool();
         private int port = 8080;
         private long timeoutMillis = 30000l;
+        private boolean nonBlockingHandlers = false;
+        private boolean nativeTransport = true;
+        private int bossThreads = 1;
+        // 0 lets netty pick twice the number of cores
+        private int workerThreads = 0;
+        private int backlog = 128;
+        private boolean reusePort = false;
+        private boolean tcpNoDelay = true;
+        private boolean keepAlive = true;
+        private boolean streamingBodies = false;
+        private int maxContentLength = 64 * 1024;
+        private int compressionThreshold = 1024;
+        private int maxPipelinedRequests = HttpHandler.defaultMaxPipelinedRequests;
+        private boolean http2 = false;
 
         public Server build() {
-            return new Server(executorService, port, timeoutMillis);
+            return new Server(this);
         }
 
         public Builder withExecutorService(ExecutorService executorService) {
@@ -79,6 +270,11 @@ public class Server {
             return this;
         }
 
+        // blocking resources get a thread of their own per request, a virtual one if the jvm supports it
+        public Builder withVirtualThreads() {
+            return withExecutorService(VirtualThreads.executor());
+        }
+
         public Builder withPort(int port) {
             this.port = port;
             return this;
@@ -88,5 +284,88 @@ public class Server {
             this.timeoutMillis = timeoutMillis;
             return this;
         }
+
+        // run request handlers on the event loop of the channel instead of the executor service. Routes built
+        // with RouteToResourceBuilder#blocking() are still run on the executor service.
+        public Builder withNonBlockingHandlers(boolean nonBlockingHandlers) {
+            this.nonBlockingHandlers = nonBlockingHandlers;
+            return this;
+        }
+
+        // use epoll on linux if the native library can be loaded, nio otherwise
+        public Builder withNativeTransport(boolean nativeTransport) {
+            this.nativeTransport = nativeTransport;
+            return this;
+        }
+
+        public Builder withBossThreads(int bossThreads) {
+            if (bossThreads < 1) {
+                throw new IllegalArgumentException("at least one boss thread is required");
+            }
+            this.bossThreads = bossThreads;
+            return this;
+        }
+
+        public Builder withWorkerThreads(int workerThreads) {
+            if (workerThreads < 0) {
+                throw new IllegalArgumentException("number of worker threads must not be negative");
+            }
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        public Builder withBacklog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        // bind one socket per boss thread, only supported by the native transport
+        public Builder withReusePort(boolean reusePort) {
+            this.reusePort = reusePort;
+            return this;
+        }
+
+        public Builder withTcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+            return this;
+        }
+
+        public Builder withKeepAlive(boolean keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        // hand request bodies to the handlers chunk by chunk instead of buffering them. There's no global limit on
+        // the size of streamed bodies, routes limit it with RouteToResourceBuilder#withMaxBodyBytes.
+        public Builder withStreamingBodies(boolean streamingBodies) {
+            this.streamingBodies = streamingBodies;
+            return this;
+        }
+
+        // responses of compressible media types (see Resource#isCompressible) are gzipped if the client accepts it
+        // and they have at least that many bytes. Negative thresholds turn compression off.
+        public Builder withCompressionThreshold(int compressionThreshold) {
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        // pipelined requests of a connection are handled concurrently and answered in order. The connection isn't
+        // read while that many requests wait for their responses.
+        public Builder withMaxPipelinedRequests(int maxPipelinedRequests) {
+            this.maxPipelinedRequests = maxPipelinedRequests;
+            return this;
+        }
+
+        // accept cleartext HTTP/2 (h2c), by upgrade or with prior knowledge, next to HTTP/1.1
+        public Builder withHttp2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        // limit of buffered request bodies, larger ones are answered with 413
+        public Builder withMaxContentLength(int maxContentLength) {
+            this.maxContentLength = maxContentLength;
+            return this;
+        }
     }
 }
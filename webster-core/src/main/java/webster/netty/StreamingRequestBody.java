@@ -0,0 +1,126 @@
+package webster.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import webster.requestresponse.BodyChunks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+// Feeds the HttpContent messages of a request to the handler. Auto read is switched off while the body is streamed,
+// so the connection is only read when the handler asks for a chunk that hasn't arrived yet. Everything but next()
+// and discard() is called on the event loop of the channel, which is also where the state is kept.
+class StreamingRequestBody implements BodyChunks {
+
+    private final ChannelHandlerContext ctx;
+    private final AutoRead autoRead;
+    private final Queue<ByteBuffer> chunks = new ArrayDeque<>();
+    private CompletableFuture<Optional<ByteBuffer>> pending;
+    private Throwable failure;
+    private boolean discarded = false;
+    private boolean paused = true;
+    private volatile boolean complete = false;
+
+    StreamingRequestBody(ChannelHandlerContext ctx, AutoRead autoRead) {
+        this.ctx = ctx;
+        this.autoRead = autoRead;
+        autoRead.pause();
+    }
+
+    @Override
+    public CompletableFuture<Optional<ByteBuffer>> next() {
+        CompletableFuture<Optional<ByteBuffer>> next = new CompletableFuture<>();
+        if (ctx.executor().inEventLoop()) {
+            poll(next);
+        } else {
+            ctx.executor().execute(() -> poll(next));
+        }
+        return next;
+    }
+
+    private void poll(CompletableFuture<Optional<ByteBuffer>> next) {
+        if (!chunks.isEmpty()) {
+            next.complete(Optional.of(chunks.poll()));
+        } else if (failure != null) {
+            next.completeExceptionally(failure);
+        } else if (complete || discarded) {
+            next.complete(Optional.empty());
+        } else {
+            pending = next;
+            ctx.read();
+        }
+    }
+
+    @Override
+    public void discard() {
+        if (ctx.executor().inEventLoop()) {
+            drop();
+        } else {
+            ctx.executor().execute(this::drop);
+        }
+    }
+
+    private void drop() {
+        discarded = true;
+        chunks.clear();
+        if (!complete) {
+            // the rest of the body is read and thrown away unless the connection is closed first
+            resumeReads();
+        }
+    }
+
+    private void resumeReads() {
+        if (paused) {
+            paused = false;
+            autoRead.resume();
+        }
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+
+    void onContent(HttpContent content) {
+        try {
+            if (!discarded && content.content().isReadable()) {
+                ByteBuffer chunk = ByteBuffer.allocate(content.content().readableBytes());
+                content.content().readBytes(chunk);
+                chunk.flip();
+                chunks.add(chunk);
+            }
+        } finally {
+            content.release();
+        }
+        if (content instanceof LastHttpContent) {
+            complete = true;
+            resumeReads();
+        }
+        if (pending != null && (!chunks.isEmpty() || complete)) {
+            CompletableFuture<Optional<ByteBuffer>> next = pending;
+            pending = null;
+            poll(next);
+        }
+    }
+
+    // a read may end without a complete chunk, the handler is still waiting for one then
+    void onReadComplete() {
+        if (pending != null) {
+            ctx.read();
+        }
+    }
+
+    void onClose(Throwable cause) {
+        if (!complete) {
+            failure = cause;
+            if (pending != null) {
+                CompletableFuture<Optional<ByteBuffer>> next = pending;
+                pending = null;
+                next.completeExceptionally(cause);
+            }
+        }
+    }
+}
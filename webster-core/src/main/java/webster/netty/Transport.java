@@ -0,0 +1,67 @@
+package webster.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// The native epoll transport where available, nio everywhere else.
+abstract class Transport {
+    private final static Logger logger = LoggerFactory.getLogger(Transport.class);
+
+    static Transport select(boolean preferNative) {
+        if (preferNative) {
+            if (Epoll.isAvailable()) {
+                return new EpollTransport();
+            }
+            logger.info("native epoll transport not available, falling back to nio: " + Epoll.unavailabilityCause());
+        }
+        return new NioTransport();
+    }
+
+    abstract boolean isNative();
+
+    abstract EventLoopGroup eventLoopGroup(int threads, String name);
+
+    abstract Class<? extends ServerSocketChannel> serverChannel();
+
+    private static class EpollTransport extends Transport {
+        @Override
+        boolean isNative() {
+            return true;
+        }
+
+        @Override
+        EventLoopGroup eventLoopGroup(int threads, String name) {
+            return new EpollEventLoopGroup(threads, new DefaultThreadFactory(name));
+        }
+
+        @Override
+        Class<? extends ServerSocketChannel> serverChannel() {
+            return EpollServerSocketChannel.class;
+        }
+    }
+
+    private static class NioTransport extends Transport {
+        @Override
+        boolean isNative() {
+            return false;
+        }
+
+        @Override
+        EventLoopGroup eventLoopGroup(int threads, String name) {
+            return new NioEventLoopGroup(threads, new DefaultThreadFactory(name));
+        }
+
+        @Override
+        Class<? extends ServerSocketChannel> serverChannel() {
+            return NioServerSocketChannel.class;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package webster.requestresponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+class ArrayRequestBody implements RequestBody {
+
+    private final byte[] bytes;
+
+    ArrayRequestBody(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int length() {
+        return bytes.length;
+    }
+
+    @Override
+    public byte byteAt(int index) {
+        return bytes[index];
+    }
+
+    @Override
+    public String decode(int index, int length, Charset charset) {
+        return new String(bytes, index, length, charset);
+    }
+
+    @Override
+    public InputStream stream() {
+        return new ByteArrayInputStream(bytes);
+    }
+}
@@ -0,0 +1,32 @@
+package webster.requestresponse;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+// The body of a request as a sequence of chunks. When the server streams request bodies, the next chunk is only read
+// from the connection once it is asked for, so a slow consumer holds back the client instead of buffering the body.
+public interface BodyChunks {
+
+    // completes with the next chunk or with empty after the last one. Must not be called again before the returned
+    // future has completed.
+    CompletableFuture<Optional<ByteBuffer>> next();
+
+    // drops the rest of the body
+    default void discard() {
+    }
+
+    default BodyChunks limitedTo(long maxBytes) {
+        return new LimitedBodyChunks(this, maxBytes);
+    }
+
+    static BodyChunks of(InputStream in) {
+        return new InputStreamBodyChunks(in);
+    }
+
+    // blocks the reading thread until chunks arrive, so it must not be read on an event loop
+    static InputStream asInputStream(BodyChunks chunks) {
+        return new BodyChunksInputStream(chunks);
+    }
+}
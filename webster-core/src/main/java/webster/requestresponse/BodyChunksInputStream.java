@@ -0,0 +1,72 @@
+package webster.requestresponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
+class BodyChunksInputStream extends InputStream {
+
+    private final BodyChunks chunks;
+    private ByteBuffer current = ByteBuffer.allocate(0);
+    private boolean exhausted = false;
+
+    BodyChunksInputStream(BodyChunks chunks) {
+        this.chunks = chunks;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? current.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, current.remaining());
+        current.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.remaining();
+    }
+
+    @Override
+    public void close() {
+        if (!exhausted) {
+            exhausted = true;
+            chunks.discard();
+        }
+    }
+
+    private boolean fill() throws IOException {
+        while (!current.hasRemaining()) {
+            if (exhausted) {
+                return false;
+            }
+            Optional<ByteBuffer> next;
+            try {
+                next = chunks.next().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+            if (next.isPresent()) {
+                current = next.get();
+            } else {
+                exhausted = true;
+            }
+        }
+        return true;
+    }
+}
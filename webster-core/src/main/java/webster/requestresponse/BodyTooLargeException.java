@@ -0,0 +1,10 @@
+package webster.requestresponse;
+
+public class BodyTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BodyTooLargeException(long maxBytes) {
+        super("request body exceeds " + maxBytes + " bytes");
+    }
+}
@@ -0,0 +1,102 @@
+package webster.requestresponse;
+
+import webster.requestresponse.parsing.FormFields;
+import webster.util.Lazy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// The body of a request in memory together with what has been decoded from it, shared by all copies of the request.
+// Decoding is repeatable, so the results are published through volatile fields without locking. Only a body that
+// comes as a stream has to be read under a lock, because the stream can be read only once.
+class BufferedBody {
+
+    private final Supplier<RequestBody> bytes;
+    private final Supplier<Charset> charset;
+    private final boolean inMemory;
+    private final Lazy<Optional<String>> text;
+    private final Lazy<Map<String, List<String>>> form;
+
+    private BufferedBody(Supplier<RequestBody> bytes, Supplier<Charset> charset, boolean inMemory) {
+        this.bytes = bytes;
+        this.charset = charset;
+        this.inMemory = inMemory;
+        this.text = Lazy.of(() -> {
+            RequestBody body = bytes.get();
+            return body.length() == 0 ? Optional.empty() : Optional.of(body.decode(charset.get()));
+        });
+        this.form = Lazy.of(() -> FormFields.parse(bytes.get(), charset.get()));
+    }
+
+    static BufferedBody of(RequestBody body, Supplier<Charset> charset) {
+        return new BufferedBody(() -> body, charset, true);
+    }
+
+    static BufferedBody reading(InputStream stream, Supplier<Charset> charset) {
+        return new BufferedBody(new StreamReader(stream), charset, false);
+    }
+
+    // a body in memory has passed all limits already, a streamed one has to be read through the limited stream
+    BufferedBody limitedTo(InputStream limitedStream) {
+        return inMemory ? this : reading(limitedStream, charset);
+    }
+
+    RequestBody bytes() {
+        return bytes.get();
+    }
+
+    Optional<String> text() {
+        return text.get();
+    }
+
+    Map<String, List<String>> form() {
+        return form.get();
+    }
+
+    Optional<String> field(String name) {
+        return FormFields.find(bytes(), name, charset.get());
+    }
+
+    private static class StreamReader implements Supplier<RequestBody> {
+        private final InputStream stream;
+        private volatile RequestBody body;
+
+        private StreamReader(InputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public RequestBody get() {
+            RequestBody b = body;
+            if (b == null) {
+                synchronized (this) {
+                    if (body == null) {
+                        body = RequestBody.of(readFully(stream));
+                    }
+                    b = body;
+                }
+            }
+            return b;
+        }
+
+        private static byte[] readFully(InputStream in) {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package webster.requestresponse;
+
+// Bytes produced by a serializer or template engine without going through a String. They are written as they are,
+// without copying, so the array must not be changed afterwards.
+public class ByteArrayResponseBody implements ResponseBody {
+    private final byte[] content;
+
+    public ByteArrayResponseBody(final byte[] content) {
+        this.content = content;
+    }
+
+    public byte[] content() {
+        return content;
+    }
+
+    @Override
+    public <T> T process(ResponseBodyProcessor<T> processor) {
+        return processor.process(this);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteArrayResponseBody{" + content.length + " bytes}";
+    }
+}
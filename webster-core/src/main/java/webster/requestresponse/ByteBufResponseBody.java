@@ -0,0 +1,26 @@
+package webster.requestresponse;
+
+import io.netty.buffer.ByteBuf;
+
+// Bytes already in a netty buffer, typically a retained duplicate of a cached one. Writing the response releases it.
+public class ByteBufResponseBody implements ResponseBody {
+    private final ByteBuf content;
+
+    public ByteBufResponseBody(final ByteBuf content) {
+        this.content = content;
+    }
+
+    public ByteBuf content() {
+        return content;
+    }
+
+    @Override
+    public <T> T process(ResponseBodyProcessor<T> processor) {
+        return processor.process(this);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufResponseBody{" + content.readableBytes() + " bytes}";
+    }
+}
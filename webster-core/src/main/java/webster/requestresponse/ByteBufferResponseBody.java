@@ -0,0 +1,27 @@
+package webster.requestresponse;
+
+import java.nio.ByteBuffer;
+
+// The remaining bytes of a buffer, written without copying. Writing doesn't move the buffer's position, so the same
+// body can be written more than once.
+public class ByteBufferResponseBody implements ResponseBody {
+    private final ByteBuffer content;
+
+    public ByteBufferResponseBody(final ByteBuffer content) {
+        this.content = content;
+    }
+
+    public ByteBuffer content() {
+        return content;
+    }
+
+    @Override
+    public <T> T process(ResponseBodyProcessor<T> processor) {
+        return processor.process(this);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferResponseBody{" + content.remaining() + " bytes}";
+    }
+}
@@ -0,0 +1,93 @@
+package webster.requestresponse;
+
+import webster.util.Futures;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// The time a request may take, counted from its arrival. The server gives every request its default budget and routes
+// may replace it with their own. Resources can look at what's left to skip work that wouldn't finish in time.
+public class Deadline {
+
+    private static final long unlimited = Long.MAX_VALUE;
+
+    private final long startNanos;
+    private volatile long budgetNanos;
+    private final CompletableFuture<Void> expired = new CompletableFuture<>();
+    // guarded by this, null as long as nobody waits for the deadline
+    private CompletableFuture<Boolean> timer;
+    private boolean cancelled = false;
+
+    private Deadline(long startNanos, long budgetNanos) {
+        this.startNanos = startNanos;
+        this.budgetNanos = budgetNanos;
+    }
+
+    public static Deadline none() {
+        return new Deadline(System.nanoTime(), unlimited);
+    }
+
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    public long remainingMillis() {
+        long budget = budgetNanos;
+        if (budget == unlimited) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(budget - (System.nanoTime() - startNanos)));
+    }
+
+    public boolean isExpired() {
+        return remainingMillis() == 0;
+    }
+
+    // replaces the budget, a timer waiting for the deadline is moved accordingly
+    public synchronized void setBudgetMillis(long millis) {
+        budgetNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        if (timer != null) {
+            timer.cancel(false);
+            schedule();
+        }
+    }
+
+    // completes once the deadline has passed
+    public synchronized CompletableFuture<Void> expired() {
+        if (timer == null && !cancelled && !expired.isDone()) {
+            schedule();
+        }
+        return expired;
+    }
+
+    // the request is done, the timer entry is dropped right away
+    public synchronized void cancel() {
+        cancelled = true;
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+    }
+
+    private void schedule() {
+        timer = null;
+        if (budgetNanos == unlimited) {
+            return;
+        }
+        CompletableFuture<Boolean> t = Futures.afterTimeout(true, remainingMillis());
+        timer = t;
+        t.thenRun(() -> onTimer(t));
+    }
+
+    private synchronized void onTimer(CompletableFuture<Boolean> t) {
+        // a timer that has been replaced in the meantime doesn't count
+        if (timer == t) {
+            expired.complete(null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{" + (budgetNanos == unlimited ? "none" : remainingMillis() + "ms left") + "}";
+    }
+}
@@ -0,0 +1,33 @@
+package webster.requestresponse;
+
+import java.nio.file.Path;
+
+// A file sent as is. Its length is known up front, so it goes out with a Content-Length and without copying the
+// content through the heap where the transport allows it.
+public class FileResponseBody implements ResponseBody {
+    private final Path file;
+    private final long length;
+
+    public FileResponseBody(final Path file, final long length) {
+        this.file = file;
+        this.length = length;
+    }
+
+    public Path content() {
+        return file;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public <T> T process(ResponseBodyProcessor<T> processor) {
+        return processor.process(this);
+    }
+
+    @Override
+    public String toString() {
+        return "FileResponseBody{" + file + ", " + length + " bytes}";
+    }
+}
@@ -7,8 +7,6 @@ import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import static webster.requestresponse.parsing.Parsers.asForm;
-
 public class Form {
 
     private final Map<String, Field> fields;
@@ -79,12 +77,13 @@ public class Form {
         }
 
         public Form parse(Request request) {
-            Map<String, String> values = request.body().parse(asForm);
+            Map<String, List<String>> values = request.formParams().value();
             return createForm(f2p -> {
                 String fieldName = f2p.getKey();
+                List<String> fieldValues = values.get(fieldName);
                 return Maps.entry(
                         fieldName,
-                        fieldFrom(values.get(fieldName), fieldNameToPattern.get(fieldName)));
+                        fieldFrom(fieldValues != null ? fieldValues.get(0) : null, fieldNameToPattern.get(fieldName)));
             });
         }
 
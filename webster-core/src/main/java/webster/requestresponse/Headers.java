@@ -0,0 +1,17 @@
+package webster.requestresponse;
+
+import java.util.Map;
+import java.util.Optional;
+
+// Request headers. Names are case-insensitive, multiple values of a header are joined with commas.
+public interface Headers {
+
+    Optional<String> get(String name);
+
+    // all headers, built on first use
+    Map<String, String> asMap();
+
+    static Headers of(Map<String, String> headers) {
+        return new MapHeaders(headers);
+    }
+}
@@ -0,0 +1,34 @@
+package webster.requestresponse;
+
+import webster.util.Futures;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+// chunks of an already buffered body
+class InputStreamBodyChunks implements BodyChunks {
+
+    private static final int chunkSize = 8192;
+
+    private final InputStream in;
+
+    InputStreamBodyChunks(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public CompletableFuture<Optional<ByteBuffer>> next() {
+        try {
+            byte[] buffer = new byte[chunkSize];
+            int n = in.read(buffer);
+            return CompletableFuture.completedFuture(n < 0
+                    ? Optional.empty()
+                    : Optional.of(ByteBuffer.wrap(buffer, 0, n)));
+        } catch (IOException e) {
+            return Futures.failed(e);
+        }
+    }
+}
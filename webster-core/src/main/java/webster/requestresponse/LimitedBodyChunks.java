@@ -0,0 +1,40 @@
+package webster.requestresponse;
+
+import webster.util.Futures;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+class LimitedBodyChunks implements BodyChunks {
+
+    private final BodyChunks chunks;
+    private final long maxBytes;
+    private volatile long read = 0;
+
+    LimitedBodyChunks(BodyChunks chunks, long maxBytes) {
+        this.chunks = chunks;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public CompletableFuture<Optional<ByteBuffer>> next() {
+        if (read > maxBytes) {
+            return Futures.failed(new BodyTooLargeException(maxBytes));
+        }
+        return chunks.next().thenApply(chunk -> {
+            // only one chunk is requested at a time, so there are no concurrent updates
+            read += chunk.map(ByteBuffer::remaining).orElse(0);
+            if (read > maxBytes) {
+                chunks.discard();
+                throw new BodyTooLargeException(maxBytes);
+            }
+            return chunk;
+        });
+    }
+
+    @Override
+    public void discard() {
+        chunks.discard();
+    }
+}
@@ -0,0 +1,34 @@
+package webster.requestresponse;
+
+import webster.util.Lazy;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+class MapHeaders implements Headers {
+
+    private final Map<String, String> headers;
+    private final Lazy<Map<String, String>> caseInsensitive;
+
+    MapHeaders(Map<String, String> headers) {
+        this.headers = headers;
+        this.caseInsensitive = Lazy.of(() -> {
+            Map<String, String> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            map.putAll(headers);
+            return Collections.unmodifiableMap(map);
+        });
+    }
+
+    @Override
+    public Optional<String> get(String name) {
+        String value = headers.get(name);
+        return value != null ? Optional.of(value) : Optional.ofNullable(caseInsensitive.get().get(name));
+    }
+
+    @Override
+    public Map<String, String> asMap() {
+        return caseInsensitive.get();
+    }
+}
@@ -1,5 +1,10 @@
 package webster.requestresponse;
 
+import io.netty.buffer.ByteBufUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
 public final class Processors {
     public static ResponseBodyProcessor<String> stringProcessor(final int maxLen){
         return new ResponseBodyProcessor<String>() {
@@ -17,6 +22,80 @@ public final class Processors {
             public String process(EmptyResponseBody body) {
                 return "EMPTY";
             }
+
+            @Override
+            public String process(FileResponseBody body) {
+                return body.toString();
+            }
+
+            @Override
+            public String process(ByteBufResponseBody body) {
+                return body.toString();
+            }
+
+            @Override
+            public String process(ByteArrayResponseBody body) {
+                return body.toString();
+            }
+
+            @Override
+            public String process(ByteBufferResponseBody body) {
+                return body.toString();
+            }
+
+            @Override
+            public String process(PublisherResponseBody body) {
+                return body.toString();
+            }
+        };
+    }
+
+    // the bytes of a body that is already in memory, without consuming it, strings encoded with charset. Null for
+    // streams, files and publishers.
+    public static ResponseBodyProcessor<byte[]> inMemoryBytesProcessor(final Charset charset) {
+        return new ResponseBodyProcessor<byte[]>() {
+            @Override
+            public byte[] process(StringResponseBody body) {
+                return body.content().getBytes(charset);
+            }
+
+            @Override
+            public byte[] process(InputStreamResponseBody body) {
+                return null;
+            }
+
+            @Override
+            public byte[] process(EmptyResponseBody body) {
+                return new byte[0];
+            }
+
+            @Override
+            public byte[] process(FileResponseBody body) {
+                return null;
+            }
+
+            @Override
+            public byte[] process(ByteBufResponseBody body) {
+                return ByteBufUtil.getBytes(body.content());
+            }
+
+            @Override
+            public byte[] process(ByteArrayResponseBody body) {
+                return body.content();
+            }
+
+            @Override
+            public byte[] process(ByteBufferResponseBody body) {
+                ByteBuffer content = body.content().duplicate();
+                byte[] bytes = new byte[content.remaining()];
+                content.get(bytes);
+                return bytes;
+            }
+
+            @Override
+            public byte[] process(PublisherResponseBody body) {
+                return null;
+            }
         };
     }
 }
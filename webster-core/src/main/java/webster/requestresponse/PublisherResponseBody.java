@@ -0,0 +1,30 @@
+package webster.requestresponse;
+
+import org.reactivestreams.Publisher;
+
+import java.nio.ByteBuffer;
+
+// A body streamed from a publisher, for content that is produced asynchronously or is too large to hold in memory.
+// Chunks are only requested while the connection can take them, so neither a thread nor a buffer is tied up by a slow
+// client. A chunk is written without being copied and must not be changed after it has been published.
+public class PublisherResponseBody implements ResponseBody {
+    private final Publisher<ByteBuffer> content;
+
+    public PublisherResponseBody(final Publisher<ByteBuffer> content) {
+        this.content = content;
+    }
+
+    public Publisher<ByteBuffer> content() {
+        return content;
+    }
+
+    @Override
+    public <T> T process(ResponseBodyProcessor<T> processor) {
+        return processor.process(this);
+    }
+
+    @Override
+    public String toString() {
+        return "PublisherResponseBody{" + content + "}";
+    }
+}
@@ -1,9 +1,14 @@
 package webster.requestresponse;
 
+import webster.requestresponse.parsing.Parsers;
+import webster.util.Lazy;
 import webster.util.Maps;
 
 import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -11,43 +16,102 @@ public class Request {
 
     private final String method;
     private final String uri;
-    private final Map<String, String> headers;
+    private final Headers headers;
     private final InputStream body;
-    private final Map<String, List<String>> requestParams;
+    private final BodyChunks bodyChunks;
+    private final BufferedBody bufferedBody;
+    // decoded on first use and shared by all copies of the request
+    private final Lazy<Map<String, List<String>>> requestParams;
+    private final Lazy<Map<String, String>> firstParams;
     private final List<String> splats;
     private final Map<String, String> pathParams;
+    // shared by all copies, so that routes can change it
+    private final Deadline deadline;
 
     private volatile Scope context;
     private volatile Scope flash;
     private volatile Scope session;
-    private volatile boolean bodyRead;
-    private volatile Optional<String> bodyString;
 
     public Request(String method, String uri, Map<String, String> headers, InputStream body,
                    Map<String, List<String>> requestParams, List<String> splats, Map<String, String> pathParams) {
+        this(method, uri, headers, body, BodyChunks.of(body), requestParams, splats, pathParams);
+    }
+
+    // body and bodyChunks are two views of the same body, only one of them should be read
+    public Request(String method, String uri, Map<String, String> headers, InputStream body, BodyChunks bodyChunks,
+                   Map<String, List<String>> requestParams, List<String> splats, Map<String, String> pathParams) {
+        this(method, uri, Headers.of(headers), body, bodyChunks, () -> requestParams, splats, pathParams);
+    }
+
+    // request params are only decoded if they are asked for
+    public Request(String method, String uri, Headers headers, InputStream body, BodyChunks bodyChunks,
+                   Supplier<Map<String, List<String>>> requestParams, List<String> splats,
+                   Map<String, String> pathParams) {
+        this(method, uri, headers, body, bodyChunks, BufferedBody.reading(body, () -> charsetOf(headers)),
+                Lazy.of(requestParams), splats, pathParams);
+    }
+
+    // a body that is already in memory is decoded from its bytes, without going through a stream
+    public Request(String method, String uri, Headers headers, RequestBody body,
+                   Supplier<Map<String, List<String>>> requestParams, List<String> splats,
+                   Map<String, String> pathParams) {
+        this(method, uri, headers, body.stream(), BufferedBody.of(body, () -> charsetOf(headers)),
+                Lazy.of(requestParams), splats, pathParams);
+    }
+
+    private Request(String method, String uri, Headers headers, InputStream body, BufferedBody bufferedBody,
+                    Lazy<Map<String, List<String>>> requestParams, List<String> splats,
+                    Map<String, String> pathParams) {
+        this(method, uri, headers, body, BodyChunks.of(body), bufferedBody, requestParams, splats, pathParams);
+    }
+
+    private Request(String method, String uri, Headers headers, InputStream body, BodyChunks bodyChunks,
+                    BufferedBody bufferedBody, Lazy<Map<String, List<String>>> requestParams, List<String> splats,
+                    Map<String, String> pathParams) {
+        this(method, uri, headers, body, bodyChunks, bufferedBody, requestParams,
+                Lazy.of(() -> firstValues(requestParams.get())), splats, pathParams, Deadline.none());
+    }
+
+    private Request(String method, String uri, Headers headers, InputStream body, BodyChunks bodyChunks,
+                    BufferedBody bufferedBody, Lazy<Map<String, List<String>>> requestParams,
+                    Lazy<Map<String, String>> firstParams, List<String> splats, Map<String, String> pathParams,
+                    Deadline deadline) {
         this.method = method;
         this.uri = uri;
         this.headers = headers;
         this.body = body;
+        this.bodyChunks = bodyChunks;
+        this.bufferedBody = bufferedBody;
         this.requestParams = requestParams;
+        this.firstParams = firstParams;
         this.splats = splats;
         this.pathParams = pathParams;
+        this.deadline = deadline;
         this.context = new Scope();
         this.flash = new Scope();
         this.session = new Scope();
-        this.bodyRead = false;
-        this.bodyString = null;
     }
 
-    private Request(String method, String uri, Map<String, String> headers, InputStream body,
-                    Map<String, List<String>> requestParams, List<String> splats, Map<String, String> pathParams,
-                    Scope context, Scope flash, Scope session, boolean bodyRead, Optional<String> bodyString) {
-        this(method, uri, headers, body, requestParams, splats, pathParams);
+    private Request(String method, String uri, Headers headers, InputStream body, BodyChunks bodyChunks,
+                    BufferedBody bufferedBody, Lazy<Map<String, List<String>>> requestParams,
+                    Lazy<Map<String, String>> firstParams, List<String> splats, Map<String, String> pathParams,
+                    Deadline deadline, Scope context, Scope flash, Scope session) {
+        this(method, uri, headers, body, bodyChunks, bufferedBody, requestParams, firstParams, splats, pathParams,
+                deadline);
         this.context = context;
         this.flash = flash;
         this.session = session;
-        this.bodyRead = bodyRead;
-        this.bodyString = bodyString;
+    }
+
+    // the charset of the body as declared by the Content-Type header, UTF-8 if there is none
+    private static Charset charsetOf(Headers headers) {
+        return Parsers.asCharset.apply(headers.get("Content-Type")).orElse(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> firstValues(Map<String, List<String>> requestParams) {
+        return Collections.unmodifiableMap(requestParams.entrySet().stream()
+                .map(entry -> Maps.entry(entry.getKey(), entry.getValue().get(0)))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
     }
 
     public String method() {
@@ -58,37 +122,54 @@ public class Request {
         return uri;
     }
 
+    // header names are case-insensitive
     public ValueSupplier<Map<String, String>> headers() {
-        return new ValueSupplier<>(headers);
+        return new ValueSupplier<>(headers.asMap());
     }
 
     public ValueSupplier<Optional<String>> header(String name) {
-        return new ValueSupplier<>(Optional.ofNullable(headers.get(name)));
+        return new ValueSupplier<>(headers.get(name));
     }
 
+    // decoded once with the charset of the Content-Type header
     public ValueSupplier<Optional<String>> body() {
-        return new ValueSupplier<>(bodyAsString());
+        return new ValueSupplier<>(bufferedBody.text());
+    }
+
+    // reads a streamed body into memory
+    public ValueSupplier<RequestBody> bodyBytes() {
+        return new ValueSupplier<>(bufferedBody.bytes());
+    }
+
+    // the body as an application/x-www-form-urlencoded form
+    public ValueSupplier<Map<String, List<String>>> formParams() {
+        return new ValueSupplier<>(bufferedBody.form());
+    }
+
+    // looks for a single field of an application/x-www-form-urlencoded body without decoding the rest of it
+    public ValueSupplier<Optional<String>> formParam(String name) {
+        return new ValueSupplier<>(bufferedBody.field(name));
     }
 
     public ValueSupplier<InputStream> bodyStream() {
         return new ValueSupplier<>(body);
     }
 
+    public ValueSupplier<BodyChunks> bodyChunks() {
+        return new ValueSupplier<>(bodyChunks);
+    }
+
     public ValueSupplier<Map<String, List<String>>> multiParams() {
-        return new ValueSupplier<>(requestParams);
+        return new ValueSupplier<>(requestParams.get());
     }
 
     public ValueSupplier<Map<String, String>> params() {
-        Map<String, String> firstValues = requestParams.entrySet().stream()
-                .map(entry -> Maps.entry(entry.getKey(), entry.getValue().get(0)))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        return new ValueSupplier<>(firstValues);
+        return new ValueSupplier<>(firstParams.get());
     }
 
     public ValueSupplier<List<String>> paramValues(String name) {
-        return new ValueSupplier<>(requestParams.containsKey(name)
-                ? requestParams.get(name)
-                : Collections.emptyList());
+        List<String> values = requestParams.get().get(name);
+        return new ValueSupplier<>(values != null ? values : Collections.emptyList());
     }
 
     public ValueSupplier<Optional<String>> param(String name) {
@@ -110,6 +191,10 @@ public class Request {
         return new ValueSupplier<>(splats);
     }
 
+    public Deadline deadline() {
+        return deadline;
+    }
+
     public Scope context() {
         return context;
     }
@@ -122,26 +207,22 @@ public class Request {
         return session;
     }
 
-    private synchronized Optional<String> bodyAsString() {
-        if (!bodyRead) {
-            bodyRead = true;
-            // TODO charset?
-            Scanner scanner = new Scanner(body, "UTF-8").useDelimiter("\\A");
-            bodyString = scanner.hasNext()
-                    ? Optional.of(scanner.next())
-                    : Optional.empty();
-        }
-        return bodyString;
-    }
-
     public Request withMethod(String method) {
-        return new Request(method, uri, headers, body, requestParams, splats, pathParams, context, flash, session,
-                bodyRead, bodyString);
+        return new Request(method, uri, headers, body, bodyChunks, bufferedBody, requestParams, firstParams, splats,
+                pathParams, deadline, context, flash, session);
     }
 
     public Request withSplatsAndPathParams(List<String> splats, Map<String, String> pathParams) {
-        return new Request(method, uri, headers, body, requestParams, splats, pathParams, context, flash, session,
-                bodyRead, bodyString);
+        return new Request(method, uri, headers, body, bodyChunks, bufferedBody, requestParams, firstParams, splats,
+                pathParams, deadline, context, flash, session);
+    }
+
+    // reading more than maxBytes of the body fails with a BodyTooLargeException
+    public Request withBodyLimit(long maxBytes) {
+        BodyChunks limited = bodyChunks.limitedTo(maxBytes);
+        InputStream limitedBody = BodyChunks.asInputStream(limited);
+        return new Request(method, uri, headers, limitedBody, limited, bufferedBody.limitedTo(limitedBody),
+                requestParams, firstParams, splats, pathParams, deadline, context, flash, session);
     }
 
     @Override
@@ -149,8 +230,8 @@ public class Request {
         return "Request{" +
                 "method='" + method + '\'' +
                 ", uri='" + uri + '\'' +
-                ", headers=" + headers +
-                ", requestParams=" + requestParams +
+                ", headers=" + headers.asMap() +
+                ", requestParams=" + requestParams.get() +
                 ", splats=" + splats +
                 ", pathParams=" + pathParams +
                 ", body=" + body +
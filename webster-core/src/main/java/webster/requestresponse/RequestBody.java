@@ -0,0 +1,26 @@
+package webster.requestresponse;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+// A request body that has been read into memory. Its bytes can be looked at without copying or decoding them.
+public interface RequestBody {
+
+    int length();
+
+    byte byteAt(int index);
+
+    // decodes length bytes starting at index
+    String decode(int index, int length, Charset charset);
+
+    default String decode(Charset charset) {
+        return decode(0, length(), charset);
+    }
+
+    // a new stream over the whole body on every call
+    InputStream stream();
+
+    static RequestBody of(byte[] bytes) {
+        return new ArrayRequestBody(bytes);
+    }
+}
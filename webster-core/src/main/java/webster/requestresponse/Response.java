@@ -13,6 +13,7 @@ public class Response {
     private final int status;
     private final ResponseBody body;
     private final Map<String, String> headers;
+    private final boolean compressible;
 
     public Response(Throwable throwable) {
         this(500, new StringResponseBody("internal server error"));
@@ -32,10 +33,15 @@ public class Response {
     }
 
     public Response(int status, ResponseBody body, Map<String, String> headers) {
+        this(status, body, headers, false);
+    }
+
+    private Response(int status, ResponseBody body, Map<String, String> headers, boolean compressible) {
         Objects.requireNonNull(headers);
         this.headers = headers;
         this.status = status;
         this.body = body;
+        this.compressible = compressible;
     }
 
     public int status() {
@@ -61,11 +67,20 @@ public class Response {
     }
 
     public Response withStatus(int status) {
-        return new Response(status, body, headers);
+        return new Response(status, body, headers, compressible);
     }
 
     public Response withBody(ResponseBody body) {
-        return new Response(status, body, headers);
+        return new Response(status, body, headers, compressible);
+    }
+
+    // the server may compress the body if the client accepts it
+    public Response withCompressible(boolean compressible) {
+        return new Response(status, body, headers, compressible);
+    }
+
+    public boolean isCompressible() {
+        return compressible;
     }
 
     @Override
@@ -6,4 +6,14 @@ public interface ResponseBodyProcessor<T> {
     T process(InputStreamResponseBody body);
 
     T process(EmptyResponseBody body);
+
+    T process(FileResponseBody body);
+
+    T process(ByteBufResponseBody body);
+
+    T process(ByteArrayResponseBody body);
+
+    T process(ByteBufferResponseBody body);
+
+    T process(PublisherResponseBody body);
 }
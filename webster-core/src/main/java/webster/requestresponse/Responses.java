@@ -1,6 +1,14 @@
 package webster.requestresponse;
 
+import io.netty.buffer.ByteBuf;
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public final class Responses {
     private static final ResponseBody singleInstance = new EmptyResponseBody();
@@ -13,7 +21,31 @@ public final class Responses {
         return new StringResponseBody(content);
     }
 
+    public static ResponseBody bodyFrom(byte[] content){
+        return new ByteArrayResponseBody(content);
+    }
+
+    public static ResponseBody bodyFrom(ByteBuffer content){
+        return new ByteBufferResponseBody(content);
+    }
+
+    public static ResponseBody bodyFrom(ByteBuf content){
+        return new ByteBufResponseBody(content);
+    }
+
     public static ResponseBody bodyFrom(InputStream content){
         return new InputStreamResponseBody(content);
     }
+
+    public static ResponseBody bodyFrom(Publisher<ByteBuffer> content){
+        return new PublisherResponseBody(content);
+    }
+
+    public static ResponseBody bodyFrom(Path file){
+        try {
+            return new FileResponseBody(file, Files.size(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
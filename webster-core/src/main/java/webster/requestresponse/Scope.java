@@ -14,6 +14,11 @@ public class Scope {
         return (T) items.put(key, item);
     }
 
+    @SuppressWarnings("unchecked")
+    public <T> T remove(String key) {
+        return (T) items.remove(key);
+    }
+
     public <T> Optional<T> get(String key) {
         return Optional.ofNullable((T) items.get(key));
     }
@@ -0,0 +1,120 @@
+package webster.requestresponse.parsing;
+
+import webster.requestresponse.RequestBody;
+
+import java.nio.charset.Charset;
+import java.util.*;
+
+// Reads application/x-www-form-urlencoded bodies byte by byte. Only the names and values that are asked for are
+// decoded, so finding a single field doesn't decode the rest of the body.
+public class FormFields {
+
+    public static Optional<String> find(RequestBody body, String name, Charset charset) {
+        byte[] encodedName = name.getBytes(charset);
+        int length = body.length();
+        int start = 0;
+        while (start < length) {
+            int end = endOfField(body, start, length);
+            int separator = indexOf(body, (byte) '=', start, end);
+            if (nameEquals(body, start, separator, encodedName, name, charset)) {
+                return Optional.of(separator < end ? decode(body, separator + 1, end, charset) : "");
+            }
+            start = end + 1;
+        }
+        return Optional.empty();
+    }
+
+    public static Map<String, List<String>> parse(RequestBody body, Charset charset) {
+        Map<String, List<String>> fields = new LinkedHashMap<>();
+        int length = body.length();
+        int start = 0;
+        while (start < length) {
+            int end = endOfField(body, start, length);
+            int separator = indexOf(body, (byte) '=', start, end);
+            if (separator > start) {
+                String value = separator < end ? decode(body, separator + 1, end, charset) : "";
+                fields.computeIfAbsent(decode(body, start, separator, charset), n -> new ArrayList<>(1)).add(value);
+            }
+            start = end + 1;
+        }
+        return fields;
+    }
+
+    // fields are separated by & or ;, like netty's QueryStringDecoder does
+    private static int endOfField(RequestBody body, int start, int length) {
+        for (int i = start; i < length; i++) {
+            byte b = body.byteAt(i);
+            if (b == '&' || b == ';') {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static int indexOf(RequestBody body, byte b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (body.byteAt(i) == b) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean nameEquals(RequestBody body, int start, int end, byte[] encodedName, String name,
+                                      Charset charset) {
+        if (isEncoded(body, start, end)) {
+            return name.equals(decode(body, start, end, charset));
+        }
+        if (end - start != encodedName.length) {
+            return false;
+        }
+        for (int i = 0; i < encodedName.length; i++) {
+            if (body.byteAt(start + i) != encodedName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEncoded(RequestBody body, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = body.byteAt(i);
+            if (b == '%' || b == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // malformed escapes are kept as they are
+    private static String decode(RequestBody body, int start, int end, Charset charset) {
+        if (!isEncoded(body, start, end)) {
+            return body.decode(start, end - start, charset);
+        }
+        byte[] decoded = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = body.byteAt(i);
+            if (b == '+') {
+                decoded[length++] = ' ';
+            } else if (b == '%' && i + 2 < end && hex(body.byteAt(i + 1)) >= 0 && hex(body.byteAt(i + 2)) >= 0) {
+                decoded[length++] = (byte) (hex(body.byteAt(i + 1)) << 4 | hex(body.byteAt(i + 2)));
+                i += 2;
+            } else {
+                decoded[length++] = b;
+            }
+        }
+        return new String(decoded, 0, length, charset);
+    }
+
+    private static int hex(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        } else if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        } else if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,217 @@
+package webster.requestresponse.parsing;
+
+import java.time.Instant;
+import java.util.Optional;
+
+// Formats dates as IMF-fixdate and parses all three formats of RFC 7231 section 7.1.1.1 without going through
+// SimpleDateFormat. Invalid dates are reported as empty, not as exceptions.
+public class HttpDates {
+
+    private static final String[] shortDays = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
+    private static final String[] longDays = {"Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"};
+    private static final String[] months = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final long invalid = Long.MIN_VALUE;
+
+    private static volatile CachedDate now = new CachedDate(Long.MIN_VALUE, null);
+
+    // the Date header value for the current second, formatted at most once per second
+    public static String now() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate cached = now;
+        if (cached.second != second) {
+            cached = new CachedDate(second, format(second));
+            now = cached;
+        }
+        return cached.value;
+    }
+
+    public static String format(Instant instant) {
+        return format(instant.getEpochSecond());
+    }
+
+    // Sun, 06 Nov 1994 08:49:37 GMT
+    private static String format(long epochSecond) {
+        long days = Math.floorDiv(epochSecond, 86400);
+        int secondOfDay = (int) Math.floorMod(epochSecond, 86400);
+        long[] date = civilFromDays(days);
+        char[] out = new char[29];
+        shortDays[(int) Math.floorMod(days + 4, 7)].getChars(0, 3, out, 0);
+        out[3] = ',';
+        out[4] = ' ';
+        twoDigits(out, 5, (int) date[2]);
+        out[7] = ' ';
+        months[(int) date[1] - 1].getChars(0, 3, out, 8);
+        out[11] = ' ';
+        int year = (int) date[0];
+        twoDigits(out, 12, year / 100);
+        twoDigits(out, 14, year % 100);
+        out[16] = ' ';
+        twoDigits(out, 17, secondOfDay / 3600);
+        out[19] = ':';
+        twoDigits(out, 20, secondOfDay / 60 % 60);
+        out[22] = ':';
+        twoDigits(out, 23, secondOfDay % 60);
+        " GMT".getChars(0, 4, out, 25);
+        return new String(out);
+    }
+
+    public static Optional<Instant> parse(String s) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int comma = s.indexOf(',', start);
+        long seconds;
+        if (comma < 0 || comma >= end) {
+            seconds = parseAsctime(s, start, end);
+        } else if (comma - start == 3) {
+            seconds = parseImfFixdate(s, start, end);
+        } else {
+            seconds = parseRfc850(s, start, comma, end);
+        }
+        return seconds == invalid ? Optional.empty() : Optional.of(Instant.ofEpochSecond(seconds));
+    }
+
+    // Sun, 06 Nov 1994 08:49:37 GMT
+    private static long parseImfFixdate(String s, int start, int end) {
+        if (end - start != 29
+                || indexOf(shortDays, s, start, 3) < 0
+                || s.charAt(start + 4) != ' ' || s.charAt(start + 7) != ' ' || s.charAt(start + 11) != ' '
+                || !isZone(s, start + 25)) {
+            return invalid;
+        }
+        int year = digits(s, start + 12, 4);
+        return epochSecond(year, indexOf(months, s, start + 8, 3) + 1, digits(s, start + 5, 2), s, start + 17);
+    }
+
+    // Sunday, 06-Nov-94 08:49:37 GMT
+    private static long parseRfc850(String s, int start, int comma, int end) {
+        if (end - comma != 24
+                || indexOf(longDays, s, start, comma - start) < 0
+                || s.charAt(comma + 1) != ' ' || s.charAt(comma + 4) != '-' || s.charAt(comma + 8) != '-'
+                || s.charAt(comma + 11) != ' ' || !isZone(s, comma + 20)) {
+            return invalid;
+        }
+        int twoDigitYear = digits(s, comma + 9, 2);
+        if (twoDigitYear < 0) {
+            return invalid;
+        }
+        // a year that appears to be more than 50 years in the future is in the past (RFC 7231 7.1.1.1)
+        int currentYear = (int) civilFromDays(Math.floorDiv(System.currentTimeMillis() / 1000, 86400))[0];
+        int year = currentYear / 100 * 100 + twoDigitYear;
+        if (year > currentYear + 50) {
+            year -= 100;
+        }
+        return epochSecond(year, indexOf(months, s, comma + 5, 3) + 1, digits(s, comma + 2, 2), s, comma + 12);
+    }
+
+    // Sun Nov  6 08:49:37 1994
+    private static long parseAsctime(String s, int start, int end) {
+        if (end - start != 24
+                || indexOf(shortDays, s, start, 3) < 0
+                || s.charAt(start + 3) != ' ' || s.charAt(start + 7) != ' ' || s.charAt(start + 10) != ' '
+                || s.charAt(start + 19) != ' ') {
+            return invalid;
+        }
+        int day = s.charAt(start + 8) == ' ' ? digits(s, start + 9, 1) : digits(s, start + 8, 2);
+        return epochSecond(digits(s, start + 20, 4), indexOf(months, s, start + 4, 3) + 1, day, s, start + 11);
+    }
+
+    // time is at s[time] as 08:49:37
+    private static long epochSecond(int year, int month, int day, String s, int time) {
+        if (s.charAt(time + 2) != ':' || s.charAt(time + 5) != ':') {
+            return invalid;
+        }
+        int hour = digits(s, time, 2);
+        int minute = digits(s, time + 3, 2);
+        int second = digits(s, time + 6, 2);
+        if (year < 0 || month < 1 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return invalid;
+        }
+        return daysFromCivil(year, month, day) * 86400 + hour * 3600 + minute * 60 + second;
+    }
+
+    private static boolean isZone(String s, int at) {
+        // dates written by earlier versions of webster end in UTC
+        return s.startsWith(" GMT", at) || s.startsWith(" UTC", at);
+    }
+
+    private static int indexOf(String[] names, String s, int at, int length) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].length() == length && s.regionMatches(at, names[i], 0, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int digits(String s, int at, int count) {
+        int value = 0;
+        for (int i = at; i < at + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void twoDigits(char[] out, int at, int value) {
+        out[at] = (char) ('0' + value / 10);
+        out[at + 1] = (char) ('0' + value % 10);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // proleptic gregorian calendar conversions, see http://howardhinnant.github.io/date_algorithms.html
+    private static long daysFromCivil(long year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // year, month and day of month
+    private static long[] civilFromDays(long days) {
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return new long[]{year, month, day};
+    }
+
+    private static class CachedDate {
+        private final long second;
+        private final String value;
+
+        private CachedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+}
@@ -2,8 +2,8 @@ package webster.requestresponse.parsing;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.Charset;
 import java.text.DateFormat;
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.*;
@@ -27,14 +27,75 @@ public class Parsers {
     public static final FormParser asForm = new FormParser();
     public static final MultiValueFormParser asMultiValueForm = new MultiValueFormParser();
     public static final SafeParser<String, Instant> asInstant = asTrimmed.andAlso(Instant::parse);
-    // TODO support not just rfc1123, see http://www.w3.org/Protocols/rfc2616/rfc2616-sec3.html#sec3.3.1
-    public static final SafeParser<String, Instant> asHttpDate = asTrimmed.andAlso(s -> {
-        try {
-            return rfc1123().parse(s).toInstant();
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
+    // any of the three formats of RFC 7231, parsed without exceptions
+    public static final SafeParser<String, Instant> asHttpDate = new SafeParser<String, Instant>() {
+        @Override
+        public Optional<Instant> apply(Optional<String> input) {
+            return input.flatMap(HttpDates::parse);
+        }
+
+        @Override
+        public Instant parse(String input) throws Exception {
+            return HttpDates.parse(input).orElseThrow(() -> new IllegalArgumentException("not an http date: " + input));
+        }
+    };
+
+    // true if an Accept-Encoding header allows gzip, explicitly or through *
+    public static final Function<Optional<String>, Boolean> asGzipAccepted =
+            optionalString -> optionalString.map(Parsers::acceptsGzip).orElse(false);
+
+    // an explicit gzip coding decides over *, whatever their order
+    private static boolean acceptsGzip(String acceptEncoding) {
+        Boolean gzip = null;
+        Boolean any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip")) {
+                gzip = !isZeroQuality(parts);
+            } else if (name.equals("*")) {
+                any = !isZeroQuality(parts);
+            }
         }
-    });
+        return gzip != null ? gzip : any != null && any;
+    }
+
+    private static boolean isZeroQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] nameAndValue = parts[i].split("=");
+            if (nameAndValue.length == 2 && nameAndValue[0].trim().equalsIgnoreCase("q")) {
+                return asDouble.apply(Optional.of(nameAndValue[1])).map(q -> q == 0).orElse(false);
+            }
+        }
+        return false;
+    }
+
+    // the media type of a Content-Type header in lower case and without parameters
+    public static final SafeParser<String, String> asMediaType =
+            contentType -> contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+
+    // the charset parameter of a Content-Type header, empty if it's missing or not supported
+    public static final Function<Optional<String>, Optional<Charset>> asCharset =
+            optionalString -> optionalString.flatMap(Parsers::charsetOf);
+
+    private static Optional<Charset> charsetOf(String contentType) {
+        String[] parts = contentType.split(";");
+        for (int i = 1; i < parts.length; i++) {
+            String[] nameAndValue = parts[i].split("=", 2);
+            if (nameAndValue.length == 2 && nameAndValue[0].trim().equalsIgnoreCase("charset")) {
+                String name = nameAndValue[1].trim();
+                if (name.length() > 1 && name.startsWith("\"") && name.endsWith("\"")) {
+                    name = name.substring(1, name.length() - 1);
+                }
+                try {
+                    return Optional.of(Charset.forName(name));
+                } catch (IllegalArgumentException e) {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.empty();
+    }
 
     public static <T> Function<Optional<T>, Boolean> asTrueIfEqualTo(T testee) {
         return optionalT -> optionalT.isPresent() && testee.equals(optionalT.get());
@@ -59,6 +120,7 @@ public class Parsers {
         O parse(I input) throws Exception;
     }
 
+    // prefer HttpDates, which is cheaper and writes GMT as required by RFC 7231
     public static DateFormat rfc1123() {
         // DateTimeFormatter.RFC_1123_DATE_TIME threw exception for Instance.now()
         // https://people.apache.org/~prasad/AHC-javadocs/constant-values.html#org.apache.ahc.util.DateUtil.PATTERN_RFC1123
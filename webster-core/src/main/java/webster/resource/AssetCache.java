@@ -0,0 +1,320 @@
+package webster.resource;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import webster.requestresponse.ByteBufResponseBody;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+// Keeps assets in pooled direct buffers, least recently used ones are evicted once the cache holds more than maxBytes.
+// Every asset may come with a gzipped variant, read from a sibling with the suffix .gz or compressed when the asset is
+// loaded. Assets larger than the cache are streamed from the opener, their gzipped variant only from the sibling.
+// Missing paths are remembered in a separate LRU bounded by count, so probing for them can't evict assets.
+public class AssetCache {
+    private final static Logger logger = LoggerFactory.getLogger(AssetCache.class);
+
+    // an entry takes up some bytes besides its content
+    private static final long entryOverheadBytes = 64;
+    private static final int defaultMaxMissingPaths = 1024;
+    // gzipped variants that don't save at least a tenth of the bytes aren't worth it
+    private static final double minGzipSaving = 0.1;
+
+    private final Function<String, InputStream> opener;
+    private final long maxBytes;
+    private final boolean gzipOnLoad;
+    private final int maxMissingPaths;
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> missing = new LinkedHashMap<String, Boolean>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > maxMissingPaths;
+        }
+    };
+    private long bytes = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+
+    // opener returns null if there is no asset for the path
+    public AssetCache(Function<String, InputStream> opener, long maxBytes, boolean gzipOnLoad) {
+        this(opener, maxBytes, gzipOnLoad, defaultMaxMissingPaths);
+    }
+
+    public AssetCache(Function<String, InputStream> opener, long maxBytes, boolean gzipOnLoad, int maxMissingPaths) {
+        this.opener = opener;
+        this.maxBytes = maxBytes;
+        this.gzipOnLoad = gzipOnLoad;
+        this.maxMissingPaths = maxMissingPaths;
+    }
+
+    public static AssetCache onClasspath(String root, long maxBytes) {
+        String prefix = root.endsWith("/") ? root : root + "/";
+        return new AssetCache(path -> AssetCache.class.getResourceAsStream(prefix + path), maxBytes, true);
+    }
+
+    public Optional<Asset> lookup(String path) {
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null || missing.get(path) != null) {
+                hits.increment();
+                return entry != null ? Optional.of(entry.asset) : Optional.empty();
+            }
+        }
+        misses.increment();
+        // loaded without holding the lock, concurrent misses of the same path may load it more than once
+        Entry loaded = load(path);
+        synchronized (this) {
+            if (loaded == null) {
+                missing.put(path, Boolean.TRUE);
+                return Optional.empty();
+            }
+            Entry previous = entries.put(path, loaded);
+            if (previous != null) {
+                bytes -= previous.size();
+                previous.release();
+            }
+            bytes += loaded.size();
+            evict();
+            return Optional.of(loaded.asset);
+        }
+    }
+
+    // the content of an asset that was looked up, gzipped if asked for and there is a gzipped variant. Buffers are
+    // retained duplicates, released once written.
+    public ResponseBody content(Asset asset, boolean gzip) {
+        Entry entry = asset.entry;
+        while (true) {
+            if (entry.streamed) {
+                return Responses.bodyFrom(open(gzip && entry.gzipSibling ? entry.path + ".gz" : entry.path));
+            }
+            synchronized (this) {
+                // the entry may have been evicted and its buffers released since it was looked up
+                if (entry.live) {
+                    ByteBuf content = gzip && entry.gzip != null ? entry.gzip : entry.identity;
+                    bytesServed.add(content.readableBytes());
+                    return new ByteBufResponseBody(content.retainedDuplicate());
+                }
+            }
+            entry = lookup(entry.path)
+                    .orElseThrow(() -> new IllegalStateException("asset disappeared: " + asset.entry.path))
+                    .entry;
+        }
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), missing.size(), bytes,
+                    bytesServed.sum());
+        }
+    }
+
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.release();
+        }
+        entries.clear();
+        missing.clear();
+        bytes = 0;
+    }
+
+    private void evict() {
+        Iterator<Entry> lru = entries.values().iterator();
+        while (bytes > maxBytes && lru.hasNext()) {
+            Entry eldest = lru.next();
+            lru.remove();
+            bytes -= eldest.size();
+            eldest.release();
+            evictions.increment();
+        }
+    }
+
+    // null if the asset is missing
+    private Entry load(String path) {
+        byte[] identity = read(path);
+        if (identity == null) {
+            return null;
+        }
+        if (Entry.size(path, identity.length, 0) > maxBytes) {
+            // too large to be cached, streamed on every request without compressing it
+            return new Entry(path, identity.length, exists(path + ".gz"));
+        }
+        byte[] gzip = read(path + ".gz");
+        if (gzip == null && gzipOnLoad) {
+            gzip = gzip(identity);
+        }
+        if (gzip != null && (gzip.length > identity.length * (1 - minGzipSaving)
+                || Entry.size(path, identity.length, gzip.length) > maxBytes)) {
+            gzip = null;
+        }
+        return new Entry(path, buffer(identity), gzip != null ? buffer(gzip) : null);
+    }
+
+    private ByteBuf buffer(byte[] content) {
+        ByteBuf buffer = allocator.directBuffer(content.length, content.length);
+        buffer.writeBytes(content);
+        return buffer;
+    }
+
+    private InputStream open(String path) {
+        InputStream in = opener.apply(path);
+        if (in == null) {
+            throw new IllegalStateException("asset disappeared: " + path);
+        }
+        return in;
+    }
+
+    private boolean exists(String path) {
+        try (InputStream in = opener.apply(path)) {
+            return in != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] read(String path) {
+        try (InputStream in = opener.apply(path)) {
+            if (in == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            logger.warn(e.getMessage(), e);
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    public static class Asset {
+        private final Entry entry;
+        private final long length;
+        private final boolean gzipped;
+
+        private Asset(Entry entry, long length, boolean gzipped) {
+            this.entry = entry;
+            this.length = length;
+            this.gzipped = gzipped;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        public boolean hasGzipVariant() {
+            return gzipped;
+        }
+    }
+
+    private static class Entry {
+        private final String path;
+        private final Asset asset;
+        private final ByteBuf identity;
+        private final ByteBuf gzip;
+        // assets larger than the cache are streamed, gzipped only if there is a sibling
+        private final boolean streamed;
+        private final boolean gzipSibling;
+        // guarded by the cache
+        private boolean live = true;
+
+        private Entry(String path, long length, boolean gzipSibling) {
+            this.path = path;
+            this.identity = null;
+            this.gzip = null;
+            this.streamed = true;
+            this.gzipSibling = gzipSibling;
+            this.asset = new Asset(this, length, gzipSibling);
+        }
+
+        private Entry(String path, ByteBuf identity, ByteBuf gzip) {
+            this.path = path;
+            this.identity = identity;
+            this.gzip = gzip;
+            this.streamed = false;
+            this.gzipSibling = false;
+            this.asset = new Asset(this, identity.readableBytes(), gzip != null);
+        }
+
+        private long size() {
+            return size(path, identity != null ? identity.capacity() : 0, gzip != null ? gzip.capacity() : 0);
+        }
+
+        private static long size(String path, int identityBytes, int gzipBytes) {
+            return entryOverheadBytes + path.length() + identityBytes + gzipBytes;
+        }
+
+        private void release() {
+            live = false;
+            if (identity != null) {
+                identity.release();
+            }
+            if (gzip != null) {
+                gzip.release();
+            }
+        }
+    }
+
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final int entries;
+        public final int missingPaths;
+        public final long bytes;
+        public final long bytesServed;
+
+        private Stats(long hits, long misses, long evictions, int entries, int missingPaths, long bytes,
+                      long bytesServed) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.missingPaths = missingPaths;
+            this.bytes = bytes;
+            this.bytesServed = bytesServed;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "hits=" + hits +
+                    ", misses=" + misses +
+                    ", evictions=" + evictions +
+                    ", entries=" + entries +
+                    ", missingPaths=" + missingPaths +
+                    ", bytes=" + bytes +
+                    ", bytesServed=" + bytesServed +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package webster.resource;
+
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.ResponseBody;
+
+import java.time.Instant;
+import java.util.*;
+
+// Same callbacks as Resource, but returning plain values. Meant for resources calling blocking APIs like JDBC. The
+// decision flow calls them directly on the thread handling the request, so routes to blocking resources are always
+// run on the executor service, ideally one that starts a virtual thread per request (see Server.Builder).
+public interface BlockingResource {
+
+    default Response override(Request request, Response response) {
+        return response;
+    }
+
+    default Optional<Instant> lastModified(Request request) {
+        return Optional.empty();
+    }
+
+    default Optional<Instant> expires(Request request) {
+        return Optional.empty();
+    }
+
+    default Optional<String> etag(Request request) {
+        return Optional.empty();
+    }
+
+    default void onDelete(Request request) {
+    }
+
+    default void onPost(Request request) {
+    }
+
+    default void onPut(Request request) {
+    }
+
+    default boolean isServiceAvailable(Request request) {
+        return true;
+    }
+
+    default boolean isMalformed(Request request) {
+        return false;
+    }
+
+    default String badRequestEntity(Request request) {
+        return "";
+    }
+
+    default boolean isAuthorized(Request request) {
+        return true;
+    }
+
+    default boolean isAllowed(Request request) {
+        return true;
+    }
+
+    default boolean isPostAllowed(Request request) {
+        return true;
+    }
+
+    default boolean isPostValid(Request request) {
+        return true;
+    }
+
+    default boolean isPutAllowed(Request request) {
+        return true;
+    }
+
+    default boolean isPutValid(Request request) {
+        return true;
+    }
+
+    default boolean isDeletetAllowed(Request request) {
+        return true;
+    }
+
+    default String locationHeader(Request request) {
+        return null;
+    }
+
+    default Map<String, String> additionalHeaders(int responseStatus, Request request) {
+        return new HashMap<>();
+    }
+
+    default boolean createdNewResource(Request request) {
+        return "POST".equalsIgnoreCase(request.method());
+    }
+
+    default boolean resourcePreviouslyExisted(Request request) {
+        return false;
+    }
+
+    default boolean resourceMovedPermanently(Request request) {
+        return true;
+    }
+
+    default Set<String> supportedMediaTypes(Request request) {
+        return supportedMediaTypes();
+    }
+
+    default boolean redirectAfterPost(Request request) {
+        return false;
+    }
+
+    default boolean isPostToMissingResourceAllowed(Request request) {
+        return false;
+    }
+
+    default boolean isConflict(Request request) {
+        return false;
+    }
+
+    default boolean respondWithEntity(Request request) {
+        return true;
+    }
+
+    default Set<String> supportedContentTypes() {
+        return null;
+    }
+
+    default Set<String> supportedMediaTypes() {
+        return Collections.singleton("text/html");
+    }
+
+    default Set<String> allowedMethods() {
+        return Collections.singleton("GET");
+    }
+
+    default Set<String> knownMethods() {
+        return new HashSet<>(Arrays.asList("GET", "PUT", "POST", "DELETE", "HEAD", "OPTIONS"));
+    }
+
+    // responses of this media type are compressed if the client accepts it
+    default boolean isCompressible(String mediaType) {
+        return false;
+    }
+
+    boolean doesRequestedResourceExist(Request request);
+
+    ResponseBody entity(Request request);
+}
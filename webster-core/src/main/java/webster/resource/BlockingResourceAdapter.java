@@ -0,0 +1,210 @@
+package webster.resource;
+
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.ResponseBody;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+// Lets the decision flow run a blocking resource. Every callback runs on the calling thread and returns a completed
+// future, so the compiled flow never suspends and evaluates the whole request on that thread. Most callbacks answer
+// yes or no or nothing, those share completed futures instead of allocating new ones.
+public class BlockingResourceAdapter implements Resource {
+
+    private static final CompletableFuture<Boolean> yes = completedFuture(true);
+    private static final CompletableFuture<Boolean> no = completedFuture(false);
+    private static final CompletableFuture<Void> done = completedFuture(null);
+
+    private final BlockingResource resource;
+
+    public BlockingResourceAdapter(BlockingResource resource) {
+        this.resource = resource;
+    }
+
+    public BlockingResource unwrap() {
+        return resource;
+    }
+
+    @Override
+    public CompletableFuture<Response> override(Request request, Response response) {
+        return completedFuture(resource.override(request, response));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Instant>> lastModified(Request request) {
+        return completedFuture(resource.lastModified(request));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Instant>> expires(Request request) {
+        return completedFuture(resource.expires(request));
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> etag(Request request) {
+        return completedFuture(resource.etag(request));
+    }
+
+    @Override
+    public CompletableFuture<Void> onDelete(Request request) {
+        resource.onDelete(request);
+        return done;
+    }
+
+    @Override
+    public CompletableFuture<Void> onPost(Request request) {
+        resource.onPost(request);
+        return done;
+    }
+
+    @Override
+    public CompletableFuture<Void> onPut(Request request) {
+        resource.onPut(request);
+        return done;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isServiceAvailable(Request request) {
+        return answer(resource.isServiceAvailable(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isMalformed(Request request) {
+        return answer(resource.isMalformed(request));
+    }
+
+    @Override
+    public CompletableFuture<String> badRequestEntity(Request request) {
+        return completedFuture(resource.badRequestEntity(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isAuthorized(Request request) {
+        return answer(resource.isAuthorized(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isAllowed(Request request) {
+        return answer(resource.isAllowed(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPostAllowed(Request request) {
+        return answer(resource.isPostAllowed(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPostValid(Request request) {
+        return answer(resource.isPostValid(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPutAllowed(Request request) {
+        return answer(resource.isPutAllowed(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPutValid(Request request) {
+        return answer(resource.isPutValid(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isDeletetAllowed(Request request) {
+        return answer(resource.isDeletetAllowed(request));
+    }
+
+    @Override
+    public CompletableFuture<String> locationHeader(Request request) {
+        return completedFuture(resource.locationHeader(request));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> additionalHeaders(int responseStatus, Request request) {
+        return completedFuture(resource.additionalHeaders(responseStatus, request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createdNewResource(Request request) {
+        return answer(resource.createdNewResource(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> resourcePreviouslyExisted(Request request) {
+        return answer(resource.resourcePreviouslyExisted(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> resourceMovedPermanently(Request request) {
+        return answer(resource.resourceMovedPermanently(request));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> supportedMediaTypes(Request request) {
+        return completedFuture(resource.supportedMediaTypes(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> redirectAfterPost(Request request) {
+        return answer(resource.redirectAfterPost(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPostToMissingResourceAllowed(Request request) {
+        return answer(resource.isPostToMissingResourceAllowed(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isConflict(Request request) {
+        return answer(resource.isConflict(request));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> respondWithEntity(Request request) {
+        return answer(resource.respondWithEntity(request));
+    }
+
+    @Override
+    public Set<String> supportedContentTypes() {
+        return resource.supportedContentTypes();
+    }
+
+    @Override
+    public Set<String> supportedMediaTypes() {
+        return resource.supportedMediaTypes();
+    }
+
+    @Override
+    public Set<String> allowedMethods() {
+        return resource.allowedMethods();
+    }
+
+    @Override
+    public Set<String> knownMethods() {
+        return resource.knownMethods();
+    }
+
+    @Override
+    public boolean isCompressible(String mediaType) {
+        return resource.isCompressible(mediaType);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+        return answer(resource.doesRequestedResourceExist(request));
+    }
+
+    @Override
+    public CompletableFuture<ResponseBody> entity(Request request) {
+        return completedFuture(resource.entity(request));
+    }
+
+    private static CompletableFuture<Boolean> answer(boolean answer) {
+        return answer ? yes : no;
+    }
+}
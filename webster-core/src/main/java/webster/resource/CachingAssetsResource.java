@@ -0,0 +1,71 @@
+package webster.resource;
+
+import webster.requestresponse.Request;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.parsing.Parsers;
+import webster.util.Maps;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+// Serves assets from an AssetCache, gzipped if the client accepts it and the cache has a gzipped variant.
+public class CachingAssetsResource extends AssetsResource {
+
+    private final AssetCache cache;
+
+    public CachingAssetsResource(AssetCache cache) {
+        this(cache, Maps.newStringMap().with("js", "application/javascript").build());
+    }
+
+    public CachingAssetsResource(AssetCache cache, Map<String, String> fileExtensionToMimeType) {
+        super("/", fileExtensionToMimeType);
+        this.cache = cache;
+    }
+
+    private String resourcePath(Request request) {
+        return request.splats().value().get(0);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+        Optional<AssetCache.Asset> asset = cache.lookup(resourcePath(request));
+        asset.ifPresent(a -> {
+            request.context().put("asset", a);
+            request.context().put("assetGzipped", a.hasGzipVariant() && request.header("Accept-Encoding").parse(Parsers.asGzipAccepted));
+        });
+        return completedFuture(asset.isPresent());
+    }
+
+    @Override
+    public CompletableFuture<ResponseBody> entity(Request request) {
+        // the asset doesRequestedResourceExist looked up, so the request doesn't go through the cache twice
+        return completedFuture(cache.content(request.context().<AssetCache.Asset>getExisting("asset"),
+                isGzipped(request)));
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> etag(Request request) {
+        // the variants differ in their bytes, so they must not share an etag
+        return super.etag(request).thenApply(etag -> etag.map(e -> isGzipped(request) ? e + "-gzip" : e));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> additionalHeaders(int responseStatus, Request request) {
+        return super.additionalHeaders(responseStatus, request).thenApply(headers -> {
+            Map<String, String> withEncoding = new HashMap<>(headers);
+            withEncoding.put("Vary", "Accept-Encoding");
+            if (responseStatus == 200 && isGzipped(request)) {
+                withEncoding.put("Content-Encoding", "gzip");
+            }
+            return withEncoding;
+        });
+    }
+
+    private boolean isGzipped(Request request) {
+        return request.context().<Boolean>get("assetGzipped").orElse(false);
+    }
+}
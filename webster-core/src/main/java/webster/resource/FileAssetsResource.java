@@ -0,0 +1,72 @@
+package webster.resource;
+
+import webster.requestresponse.FileResponseBody;
+import webster.requestresponse.Request;
+import webster.requestresponse.ResponseBody;
+import webster.util.Maps;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+// Serves the files below a directory. The server sends them with sendfile where possible.
+public class FileAssetsResource extends AssetsResource {
+
+    private final Path root;
+
+    public FileAssetsResource(Path root) {
+        this(root, Maps.newStringMap().with("js", "application/javascript").build());
+    }
+
+    public FileAssetsResource(Path root, Map<String, String> fileExtensionToMimeType) {
+        super(root.toString(), fileExtensionToMimeType);
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+        Path file = root.resolve(request.splats().value().get(0)).normalize();
+        // splats like ../../etc/passwd must not leave the root directory
+        if (!file.startsWith(root)) {
+            return completedFuture(false);
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return completedFuture(false);
+            }
+            request.context().put("asset", file);
+            request.context().put("assetAttributes", attributes);
+            return completedFuture(true);
+        } catch (IOException e) {
+            return completedFuture(false);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ResponseBody> entity(Request request) {
+        return completedFuture(new FileResponseBody(request.context().<Path>getExisting("asset"),
+                request.context().<BasicFileAttributes>getExisting("assetAttributes").size()));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Instant>> lastModified(Request request) {
+        // http dates have a resolution of seconds, so do conditional requests
+        return completedFuture(request.context().<BasicFileAttributes>get("assetAttributes").map(attributes ->
+                attributes.lastModifiedTime().toInstant().truncatedTo(ChronoUnit.SECONDS)));
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> etag(Request request) {
+        return completedFuture(request.context().<BasicFileAttributes>get("assetAttributes").map(attributes ->
+                Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis())));
+    }
+}
@@ -0,0 +1,223 @@
+package webster.resource;
+
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.ResponseBody;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+// Wraps a resource for the duration of a single request. Callbacks that the decision flow consults several times
+// (etag, lastModified, expires, supportedMediaTypes) are run at most once, later callers share the first future.
+// PUT, POST and DELETE change the resource, so etag, lastModified and expires are run again after them. All other
+// callbacks are passed through to the wrapped resource. The flow calls one callback after the other, never
+// concurrently, so the memoized futures aren't synchronized.
+public class MemoizingResource implements Resource {
+
+    private final Resource resource;
+
+    private CompletableFuture<Optional<String>> etag;
+    private CompletableFuture<Optional<Instant>> lastModified;
+    private CompletableFuture<Optional<Instant>> expires;
+    private CompletableFuture<Set<String>> supportedMediaTypes;
+
+    public MemoizingResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    public Resource unwrap() {
+        return resource;
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> etag(Request request) {
+        if (etag == null) {
+            etag = resource.etag(request);
+        }
+        return etag;
+    }
+
+    @Override
+    public CompletableFuture<Optional<Instant>> lastModified(Request request) {
+        if (lastModified == null) {
+            lastModified = resource.lastModified(request);
+        }
+        return lastModified;
+    }
+
+    @Override
+    public CompletableFuture<Optional<Instant>> expires(Request request) {
+        if (expires == null) {
+            expires = resource.expires(request);
+        }
+        return expires;
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> supportedMediaTypes(Request request) {
+        if (supportedMediaTypes == null) {
+            supportedMediaTypes = resource.supportedMediaTypes(request);
+        }
+        return supportedMediaTypes;
+    }
+
+    @Override
+    public CompletableFuture<Response> override(Request request, Response response) {
+        return resource.override(request, response);
+    }
+
+    @Override
+    public CompletableFuture<Void> onDelete(Request request) {
+        return resource.onDelete(request).thenApply(this::changed);
+    }
+
+    @Override
+    public CompletableFuture<Void> onPost(Request request) {
+        return resource.onPost(request).thenApply(this::changed);
+    }
+
+    @Override
+    public CompletableFuture<Void> onPut(Request request) {
+        return resource.onPut(request).thenApply(this::changed);
+    }
+
+    private Void changed(Void ignored) {
+        etag = null;
+        lastModified = null;
+        expires = null;
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isServiceAvailable(Request request) {
+        return resource.isServiceAvailable(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isMalformed(Request request) {
+        return resource.isMalformed(request);
+    }
+
+    @Override
+    public CompletableFuture<String> badRequestEntity(Request request) {
+        return resource.badRequestEntity(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isAuthorized(Request request) {
+        return resource.isAuthorized(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isAllowed(Request request) {
+        return resource.isAllowed(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPostAllowed(Request request) {
+        return resource.isPostAllowed(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPostValid(Request request) {
+        return resource.isPostValid(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPutAllowed(Request request) {
+        return resource.isPutAllowed(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPutValid(Request request) {
+        return resource.isPutValid(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isDeletetAllowed(Request request) {
+        return resource.isDeletetAllowed(request);
+    }
+
+    @Override
+    public CompletableFuture<String> locationHeader(Request request) {
+        return resource.locationHeader(request);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> additionalHeaders(int responseStatus, Request request) {
+        return resource.additionalHeaders(responseStatus, request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createdNewResource(Request request) {
+        return resource.createdNewResource(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> resourcePreviouslyExisted(Request request) {
+        return resource.resourcePreviouslyExisted(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> resourceMovedPermanently(Request request) {
+        return resource.resourceMovedPermanently(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> redirectAfterPost(Request request) {
+        return resource.redirectAfterPost(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPostToMissingResourceAllowed(Request request) {
+        return resource.isPostToMissingResourceAllowed(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isConflict(Request request) {
+        return resource.isConflict(request);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> respondWithEntity(Request request) {
+        return resource.respondWithEntity(request);
+    }
+
+    @Override
+    public Set<String> supportedContentTypes() {
+        return resource.supportedContentTypes();
+    }
+
+    @Override
+    public Set<String> supportedMediaTypes() {
+        return resource.supportedMediaTypes();
+    }
+
+    @Override
+    public Set<String> allowedMethods() {
+        return resource.allowedMethods();
+    }
+
+    @Override
+    public Set<String> knownMethods() {
+        return resource.knownMethods();
+    }
+
+    @Override
+    public boolean isCompressible(String mediaType) {
+        return resource.isCompressible(mediaType);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+        return resource.doesRequestedResourceExist(request);
+    }
+
+    @Override
+    public CompletableFuture<ResponseBody> entity(Request request) {
+        return resource.entity(request);
+    }
+}
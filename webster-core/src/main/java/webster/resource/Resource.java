@@ -38,6 +38,11 @@ public interface Resource {
         return CompletableFuture.completedFuture(null);
     }
 
+    // answered with 503 if false, e.g. while a backend the resource depends on is down
+    default CompletableFuture<Boolean> isServiceAvailable(Request request) {
+        return CompletableFuture.completedFuture(true);
+    }
+
     default CompletableFuture<Boolean> isMalformed(Request request) {
         // TODO validate Accept header
         return CompletableFuture.completedFuture(false);
@@ -132,6 +137,11 @@ public interface Resource {
         return new HashSet<>(Arrays.asList("GET", "PUT", "POST", "DELETE", "HEAD", "OPTIONS"));
     }
 
+    // responses of this media type are compressed if the client accepts it
+    default boolean isCompressible(String mediaType) {
+        return false;
+    }
+
     CompletableFuture<Boolean> doesRequestedResourceExist(Request request);
 
     CompletableFuture<ResponseBody> entity(Request request);
@@ -2,11 +2,18 @@ package webster.routing;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import webster.requestresponse.BodyTooLargeException;
 import webster.requestresponse.Request;
 import webster.requestresponse.Response;
+import webster.requestresponse.Responses;
 import webster.requestresponse.parsing.Parsers;
+import webster.util.ConcurrencyLimiter;
+import webster.util.Futures;
+import webster.util.Maps;
 
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
@@ -18,9 +25,10 @@ public class Decorators {
     public static final UnaryOperator<Function<Request, CompletableFuture<Response>>> parseHiddenMethodFromForms =
             handler -> req -> {
                 // TODO multipart/form-data?
-                boolean formEncoded = req.header("Content-Type").parse(asTrueIfEqualTo("application/x-www-form-urlencoded"));
+                boolean formEncoded = req.header("Content-Type")
+                        .parse(Parsers.asMediaType.andThen(asTrueIfEqualTo("application/x-www-form-urlencoded")));
                 if (formEncoded && "POST".equals(req.method())) {
-                    String actualMethod = req.body().parse(Parsers.asForm).getOrDefault("_method", req.method().toUpperCase());
+                    String actualMethod = req.formParam("_method").value().orElse(req.method().toUpperCase());
                     return handler.apply(req.withMethod(actualMethod));
                 } else {
                     return handler.apply(req);
@@ -38,4 +46,80 @@ public class Decorators {
                                 logger.warn(throwable.getMessage(), throwable);
                         });
             };
+
+    // answers 413 if the request announces or turns out to have a body of more than maxBytes
+    public static UnaryOperator<Function<Request, CompletableFuture<Response>>> limitBodyTo(long maxBytes) {
+        return handler -> req -> {
+            long contentLength = req.header("Content-Length").parse(Parsers.asLong).orElse(0l);
+            if (contentLength > maxBytes) {
+                return CompletableFuture.completedFuture(bodyTooLarge(maxBytes));
+            }
+            return handler.apply(req.withBodyLimit(maxBytes))
+                    .handle((response, throwable) -> {
+                        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                        if (cause instanceof BodyTooLargeException) {
+                            return CompletableFuture.completedFuture(bodyTooLarge(maxBytes));
+                        }
+                        return throwable != null ? Futures.<Response>failed(cause) : CompletableFuture.completedFuture(response);
+                    })
+                    .thenCompose(f -> f);
+        };
+    }
+
+    // gives requests their own time budget, counted from their arrival
+    public static UnaryOperator<Function<Request, CompletableFuture<Response>>> timeoutAfter(long millis) {
+        return handler -> req -> {
+            req.deadline().setBudgetMillis(millis);
+            return handler.apply(req);
+        };
+    }
+
+    // requests beyond the current limit are answered with 503 without running the handler, whatever its flow. Failed
+    // requests and requests that run out of time count as signs of overload, 5xx answers of the resource only count
+    // with their latency.
+    public static UnaryOperator<Function<Request, CompletableFuture<Response>>> limitConcurrency(
+            ConcurrencyLimiter limiter) {
+        return limitConcurrency(limiter, false);
+    }
+
+    // if the handler runs the default flow, requests beyond the limit are marked as rejected and passed on instead.
+    // The flow answers them from serviceNotAvailable before it consults anything else.
+    public static UnaryOperator<Function<Request, CompletableFuture<Response>>> limitConcurrency(
+            ConcurrencyLimiter limiter, boolean defaultFlow) {
+        return handler -> req -> {
+            Optional<ConcurrencyLimiter.Permit> permit = limiter.tryAcquire();
+            if (!permit.isPresent()) {
+                if (defaultFlow) {
+                    ConcurrencyLimiter.reject(req, limiter.retryAfterSeconds());
+                    return handler.apply(req);
+                }
+                return CompletableFuture.completedFuture(new Response(503,
+                        Maps.newStringMap().with("Retry-After", String.valueOf(limiter.retryAfterSeconds())).build()));
+            }
+            req.deadline().expired().thenRun(permit.get()::drop);
+            CompletableFuture<Response> response;
+            try {
+                response = handler.apply(req);
+            } catch (RuntimeException e) {
+                permit.get().drop();
+                throw e;
+            }
+            return response.whenComplete((resp, throwable) -> {
+                if (throwable != null) {
+                    permit.get().drop();
+                } else {
+                    permit.get().release();
+                }
+            });
+        };
+    }
+
+    // fresh responses to GET requests come from the cache without running the handler, see ResponseCache
+    public static UnaryOperator<Function<Request, CompletableFuture<Response>>> cacheResponses(ResponseCache cache) {
+        return handler -> req -> cache.apply(req, handler);
+    }
+
+    private static Response bodyTooLarge(long maxBytes) {
+        return new Response(413, Responses.bodyFrom("request body exceeds " + maxBytes + " bytes"));
+    }
 }
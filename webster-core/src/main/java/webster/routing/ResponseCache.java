@@ -0,0 +1,476 @@
+package webster.routing;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import webster.requestresponse.ByteBufResponseBody;
+import webster.requestresponse.ByteBufferResponseBody;
+import webster.requestresponse.Processors;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.parsing.HttpDates;
+import webster.requestresponse.parsing.Parsers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Keeps 200 responses to GET requests while they are fresh and answers later GETs of the same URI from memory,
+// without running the route. Freshness comes from Cache-Control max-age or Expires, responses without either aren't
+// kept, nor are private, no-store or no-cache ones, responses setting cookies and bodies that aren't in memory. The
+// key is the URI plus the request's values of the headers the response varies on. Accept is always part of it,
+// because the decision flow negotiates the media type. Conditional requests are answered with 304 from the cached
+// ETag or Last-Modified.
+//
+// The cache holds up to maxBytes in a segmented LRU: new entries are put on probation, entries that are hit again
+// move to the protected segment, which takes up to 80% of the space. Eviction takes the least recently used entries
+// on probation first, so a burst of one-off requests doesn't flush the popular ones. Off-heap, bodies are kept in
+// pooled direct buffers like the ones of AssetCache.
+//
+// Successful POST, PUT and DELETE requests passing the cache drop the entries of their URI. Resources that change
+// other URIs call invalidate from onPost, onPut or onDelete.
+public class ResponseCache {
+
+    // a rough estimate of what an entry takes up besides its URI, headers and body
+    private static final long entryOverheadBytes = 256;
+    private static final double protectedShare = 0.8;
+    private static final List<String> alwaysVaryOn = Collections.singletonList("accept");
+
+    private final long maxBytes;
+    private final long maxProtectedBytes;
+    // a single entry may take up an eighth of the cache
+    private final long maxEntryBytes;
+    private final boolean offHeap;
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+
+    // guarded by this
+    private final NavigableMap<String, Variants> byUri = new TreeMap<>();
+    private final LinkedHashMap<Entry, Boolean> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<Entry, Boolean> protectedSegment = new LinkedHashMap<>();
+    private long probationBytes = 0;
+    private long protectedBytes = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ResponseCache(long maxBytes) {
+        this(maxBytes, false);
+    }
+
+    public ResponseCache(long maxBytes, boolean offHeap) {
+        this.maxBytes = maxBytes;
+        this.maxProtectedBytes = (long) (maxBytes * protectedShare);
+        this.maxEntryBytes = maxBytes / 8;
+        this.offHeap = offHeap;
+    }
+
+    public CompletableFuture<Response> apply(Request request, Function<Request, CompletableFuture<Response>> handler) {
+        String method = request.method().toUpperCase(Locale.ROOT);
+        if (method.equals("GET") && isCacheable(request)) {
+            // no-cache asks for a response from the route, which then replaces the cached one
+            if (!request.header("Cache-Control").value().map(ResponseCache::list).orElse(Collections.emptyList())
+                    .contains("no-cache")) {
+                Response cached = lookup(request);
+                if (cached != null) {
+                    return CompletableFuture.completedFuture(cached);
+                }
+            }
+            return handler.apply(request).thenApply(response -> {
+                store(request, response);
+                return response;
+            });
+        }
+        if (method.equals("POST") || method.equals("PUT") || method.equals("DELETE")) {
+            return handler.apply(request).thenApply(response -> {
+                if (response.status() < 400) {
+                    invalidateUri(request.uri());
+                }
+                return response;
+            });
+        }
+        return handler.apply(request);
+    }
+
+    // drops the entries of all URIs starting with uriPrefix, returns how many there were
+    public int invalidate(String uriPrefix) {
+        synchronized (this) {
+            return removeAll(byUri.subMap(uriPrefix, true, uriPrefix + Character.MAX_VALUE, true));
+        }
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            int entries = probation.size() + protectedSegment.size();
+            return new Stats(hits.sum(), misses.sum(), stores.sum(), evictions.sum(), invalidations.sum(), entries,
+                    probationBytes + protectedBytes);
+        }
+    }
+
+    public synchronized void clear() {
+        removeAll(byUri);
+    }
+
+    // requests with credentials or ranges and preconditions the cache doesn't evaluate go to the route
+    private static boolean isCacheable(Request request) {
+        return !request.header("Authorization").value().isPresent()
+                && !request.header("Range").value().isPresent()
+                && !request.header("If-Match").value().isPresent()
+                && !request.header("If-Unmodified-Since").value().isPresent();
+    }
+
+    private Response lookup(Request request) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Variants variants = byUri.get(request.uri());
+            Entry entry = variants != null ? variants.entries.get(keyOf(variants.vary, request)) : null;
+            if (entry == null || entry.expiresAt <= now) {
+                if (entry != null) {
+                    remove(entry);
+                }
+                misses.increment();
+                return null;
+            }
+            touch(entry);
+            hits.increment();
+            return isNotModified(entry, request) ? entry.notModified(now) : entry.response(now);
+        }
+    }
+
+    private void store(Request request, Response response) {
+        if (response.status() != 200) {
+            return;
+        }
+        Map<String, String> headers = response.headers();
+        String cacheControl = header(headers, "Cache-Control");
+        List<String> directives = cacheControl != null ? list(cacheControl) : Collections.emptyList();
+        if (directives.contains("no-store") || directives.contains("private") || directives.contains("no-cache")
+                || header(headers, "Set-Cookie") != null) {
+            return;
+        }
+        String varyHeader = header(headers, "Vary");
+        List<String> vary = new ArrayList<>(alwaysVaryOn);
+        if (varyHeader != null) {
+            for (String name : list(varyHeader)) {
+                if (name.equals("*")) {
+                    return;
+                }
+                if (!vary.contains(name)) {
+                    vary.add(name);
+                }
+            }
+        }
+        long now = System.currentTimeMillis();
+        long expiresAt = expiresAt(headers, directives, now);
+        if (expiresAt <= now) {
+            return;
+        }
+        Charset charset = Parsers.asCharset.apply(Optional.ofNullable(header(headers, "Content-Type")))
+                .orElse(StandardCharsets.UTF_8);
+        byte[] body = response.body() != null
+                ? response.body().process(Processors.inMemoryBytesProcessor(charset))
+                : new byte[0];
+        if (body == null) {
+            return;
+        }
+        String etag = header(headers, "ETag");
+        Optional<Instant> lastModified =
+                Optional.ofNullable(header(headers, "Last-Modified")).flatMap(HttpDates::parse);
+        Entry entry = new Entry(request.uri(), keyOf(vary, request), new HashMap<>(headers),
+                response.isCompressible(), body.length, now, expiresAt, etag, lastModified.orElse(null));
+        if (entry.size > maxEntryBytes) {
+            return;
+        }
+        if (offHeap) {
+            entry.content = allocator.directBuffer(body.length, body.length).writeBytes(body);
+        } else {
+            entry.bytes = body;
+        }
+        synchronized (this) {
+            Variants variants = byUri.get(entry.uri);
+            if (variants == null || !variants.vary.equals(vary)) {
+                if (variants != null) {
+                    removeAll(Collections.singletonMap(entry.uri, variants));
+                }
+                variants = new Variants(vary);
+                byUri.put(entry.uri, variants);
+            }
+            Entry previous = variants.entries.put(entry.key, entry);
+            if (previous != null) {
+                unlink(previous);
+            }
+            probation.put(entry, Boolean.TRUE);
+            probationBytes += entry.size;
+            stores.increment();
+            evict();
+        }
+    }
+
+    // max-age counts from now, Expires from the response's Date
+    private static long expiresAt(Map<String, String> headers, List<String> directives, long now) {
+        for (String name : new String[]{"s-maxage=", "max-age="}) {
+            for (String directive : directives) {
+                if (directive.startsWith(name)) {
+                    try {
+                        return now + Long.parseLong(directive.substring(name.length()).replace("\"", "")) * 1000;
+                    } catch (NumberFormatException e) {
+                        return now;
+                    }
+                }
+            }
+        }
+        Optional<Instant> expires = Optional.ofNullable(header(headers, "Expires")).flatMap(HttpDates::parse);
+        if (!expires.isPresent()) {
+            return now;
+        }
+        long date = Optional.ofNullable(header(headers, "Date")).flatMap(HttpDates::parse)
+                .map(Instant::toEpochMilli)
+                .orElse(now);
+        return now + expires.get().toEpochMilli() - date;
+    }
+
+    private static boolean isNotModified(Entry entry, Request request) {
+        Optional<String> ifNoneMatch = request.header("If-None-Match").value();
+        if (ifNoneMatch.isPresent()) {
+            // entity tags are case sensitive
+            return entry.etag != null && Arrays.stream(ifNoneMatch.get().split(","))
+                    .map(String::trim)
+                    .anyMatch(tag -> tag.equals("*") || weak(tag).equals(weak(entry.etag)));
+        }
+        Optional<Instant> ifModifiedSince = request.header("If-Modified-Since").parse(Parsers.asHttpDate);
+        return ifModifiedSince.isPresent() && entry.lastModified != null
+                && !entry.lastModified.isAfter(ifModifiedSince.get());
+    }
+
+    private static String weak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String keyOf(List<String> vary, Request request) {
+        StringBuilder key = new StringBuilder();
+        for (String name : vary) {
+            key.append(request.header(name).value().orElse("")).append('\n');
+        }
+        return key.toString();
+    }
+
+    private void invalidateUri(String uri) {
+        int query = uri.indexOf('?');
+        String path = query >= 0 ? uri.substring(0, query) : uri;
+        synchronized (this) {
+            Variants variants = byUri.get(path);
+            if (variants != null) {
+                removeAll(Collections.singletonMap(path, variants));
+            }
+            removeAll(byUri.subMap(path + "?", true, path + "?" + Character.MAX_VALUE, true));
+        }
+    }
+
+    // guarded by this
+    private int removeAll(Map<String, Variants> uris) {
+        List<Entry> entries = uris.values().stream()
+                .flatMap(variants -> variants.entries.values().stream())
+                .collect(Collectors.toList());
+        entries.forEach(this::remove);
+        invalidations.add(entries.size());
+        return entries.size();
+    }
+
+    // guarded by this
+    private void remove(Entry entry) {
+        Variants variants = byUri.get(entry.uri);
+        if (variants != null && variants.entries.get(entry.key) == entry) {
+            variants.entries.remove(entry.key);
+            if (variants.entries.isEmpty()) {
+                byUri.remove(entry.uri);
+            }
+        }
+        unlink(entry);
+    }
+
+    // guarded by this
+    private void unlink(Entry entry) {
+        if (probation.remove(entry) != null) {
+            probationBytes -= entry.size;
+        } else if (protectedSegment.remove(entry) != null) {
+            protectedBytes -= entry.size;
+        }
+        entry.release();
+    }
+
+    // guarded by this, moves the entry to the most recently used end of the protected segment
+    private void touch(Entry entry) {
+        if (probation.remove(entry) != null) {
+            probationBytes -= entry.size;
+        } else {
+            protectedSegment.remove(entry);
+            protectedBytes -= entry.size;
+        }
+        protectedSegment.put(entry, Boolean.TRUE);
+        protectedBytes += entry.size;
+        // the protected segment overflows onto probation
+        Iterator<Entry> lru = protectedSegment.keySet().iterator();
+        while (protectedBytes > maxProtectedBytes && lru.hasNext()) {
+            Entry demoted = lru.next();
+            lru.remove();
+            protectedBytes -= demoted.size;
+            probation.put(demoted, Boolean.TRUE);
+            probationBytes += demoted.size;
+        }
+    }
+
+    // guarded by this
+    private void evict() {
+        while (probationBytes + protectedBytes > maxBytes) {
+            Iterator<Entry> lru = (probation.isEmpty() ? protectedSegment : probation).keySet().iterator();
+            if (!lru.hasNext()) {
+                return;
+            }
+            remove(lru.next());
+            evictions.increment();
+        }
+    }
+
+    private static String header(Map<String, String> headers, String name) {
+        String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static List<String> list(String header) {
+        return Arrays.stream(header.split(","))
+                .map(value -> value.trim().toLowerCase(Locale.ROOT))
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private static class Variants {
+        // lower case header names
+        private final List<String> vary;
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        private Variants(List<String> vary) {
+            this.vary = vary;
+        }
+    }
+
+    // compared by identity in the segments
+    private static class Entry {
+        private static final List<String> notModifiedHeaders =
+                Arrays.asList("Cache-Control", "Content-Location", "Date", "ETag", "Expires", "Last-Modified", "Vary");
+
+        private final String uri;
+        private final String key;
+        private final Map<String, String> headers;
+        private final boolean compressible;
+        private final long storedAt;
+        private final long expiresAt;
+        private final String etag;
+        private final Instant lastModified;
+        private final long size;
+        // one of the two, depending on where the cache keeps bodies
+        private byte[] bytes;
+        private ByteBuf content;
+
+        private Entry(String uri, String key, Map<String, String> headers, boolean compressible, int bodyBytes,
+                      long storedAt, long expiresAt, String etag, Instant lastModified) {
+            this.uri = uri;
+            this.key = key;
+            this.headers = headers;
+            this.compressible = compressible;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            long headerChars = headers.entrySet().stream()
+                    .mapToLong(header -> header.getKey().length() + header.getValue().length())
+                    .sum();
+            this.size = entryOverheadBytes + 2 * (uri.length() + key.length() + headerChars) + bodyBytes;
+        }
+
+        // guarded by the cache, a buffer is only released after the entry has been removed
+        private Response response(long now) {
+            ResponseBody body = content != null
+                    ? new ByteBufResponseBody(content.retainedDuplicate())
+                    : new ByteBufferResponseBody(ByteBuffer.wrap(bytes));
+            return new Response(200, body, withAge(new HashMap<>(headers), now)).withCompressible(compressible);
+        }
+
+        private Response notModified(long now) {
+            Map<String, String> notModified = new HashMap<>();
+            for (String name : notModifiedHeaders) {
+                String value = header(headers, name);
+                if (value != null) {
+                    notModified.put(name, value);
+                }
+            }
+            return new Response(304, withAge(notModified, now));
+        }
+
+        private Map<String, String> withAge(Map<String, String> headers, long now) {
+            headers.put("Age", String.valueOf(Math.max(0, (now - storedAt) / 1000)));
+            return headers;
+        }
+
+        private void release() {
+            if (content != null) {
+                content.release();
+                content = null;
+            }
+        }
+    }
+
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long stores;
+        public final long evictions;
+        public final long invalidations;
+        public final int entries;
+        public final long bytes;
+
+        private Stats(long hits, long misses, long stores, long evictions, long invalidations, int entries,
+                      long bytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.stores = stores;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hits=" + hits + ", misses=" + misses + ", stores=" + stores + ", evictions=" + evictions
+                    + ", invalidations=" + invalidations + ", entries=" + entries + ", bytes=" + bytes + "}";
+        }
+    }
+}
@@ -8,6 +8,7 @@ import spark.utils.SparkUtils;
 import webster.requestresponse.Request;
 import webster.requestresponse.Response;
 import webster.spark.Spark;
+import webster.util.Offload;
 
 import java.util.List;
 import java.util.Map;
@@ -21,11 +22,18 @@ public class Route implements Decoratable<Request, CompletableFuture<Response>>
     private final Decoratable<Request, CompletableFuture<Response>> handler;
     private final RouteMatcher routeMatcher;
     private final String pattern;
+    private final boolean blocking;
 
     public Route(String pattern, Decoratable<Request, CompletableFuture<Response>> handler) {
+        this(pattern, handler, false);
+    }
+
+    // the handler of a blocking route is moved off the event loop if the server runs handlers inline
+    public Route(String pattern, Decoratable<Request, CompletableFuture<Response>> handler, boolean blocking) {
         this.handler = handler;
         this.routeMatcher = routeMatcherFor(pattern);
         this.pattern = pattern;
+        this.blocking = blocking;
     }
 
     private RouteMatcher routeMatcherFor(String pattern) {
@@ -42,13 +50,28 @@ public class Route implements Decoratable<Request, CompletableFuture<Response>>
         return matchFor(request).isPresent();
     }
 
+    public String pattern() {
+        return pattern;
+    }
+
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    // called by the routing table, which has already matched the request and extracted splats and path params
+    CompletableFuture<Response> applyMatched(Request request) {
+        return blocking
+                ? Offload.blocking(request, () -> handler.apply(request))
+                : handler.apply(request);
+    }
+
     @Override
     public CompletableFuture<Response> apply(Request request) {
         Optional<RouteMatch> routeMatch = matchFor(request);
         if (!routeMatch.isPresent()) {
             throw new IllegalArgumentException("route doesn't match");
         } else {
-            return handler.apply(requestWithPathParams(request, routeMatch.get()));
+            return applyMatched(requestWithPathParams(request, routeMatch.get()));
         }
     }
 
@@ -62,6 +85,6 @@ public class Route implements Decoratable<Request, CompletableFuture<Response>>
 
     @Override
     public Route decoratedWith(UnaryOperator<Function<Request, CompletableFuture<Response>>> decorator) {
-        return new Route(pattern, handler.decoratedWith(decorator));
+        return new Route(pattern, handler.decoratedWith(decorator), blocking);
     }
 }
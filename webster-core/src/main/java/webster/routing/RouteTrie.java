@@ -0,0 +1,155 @@
+package webster.routing;
+
+import webster.spark.Spark;
+
+import java.util.*;
+
+// Segment trie over the route patterns of a routing table. A lookup walks the request path once and yields the
+// first matching route (in registration order) together with its path params and splats. Matching follows the
+// rules of spark's SimpleRouteMatcher, which Route#matches still uses:
+// - static segments match literally, ":param" and "*" segments match any single segment
+// - unless a pattern ends with "*", a trailing slash has to be present on both pattern and path or on neither
+// - a pattern ending with "*" also matches longer paths, and "/foo/*" matches "/foo/"
+class RouteTrie {
+
+    private final TrieNode root = new TrieNode();
+
+    RouteTrie(List<Route> routes) {
+        for (int index = 0; index < routes.size(); index++) {
+            add(new Entry(index, routes.get(index)));
+        }
+    }
+
+    private void add(Entry entry) {
+        TrieNode node = root;
+        node.minIndex = Math.min(node.minIndex, entry.index);
+        for (String segment : entry.segments) {
+            node = node.child(segment);
+            node.minIndex = Math.min(node.minIndex, entry.index);
+        }
+        // entries are added in registration order, so every list is sorted by index
+        (entry.openEnded ? node.openEnded : node.exact).add(entry);
+    }
+
+    Optional<Match> match(String path) {
+        List<String> segments = segments(path);
+        Entry entry = search(root, segments, 0, path.endsWith("/"), null);
+        return entry == null
+                ? Optional.empty()
+                : Optional.of(new Match(
+                entry.route,
+                Spark.getSplat(segments, entry.segments),
+                Spark.getParams(segments, entry.segments)));
+    }
+
+    private Entry search(TrieNode node, List<String> segments, int depth, boolean trailingSlash, Entry best) {
+        if (best != null && node.minIndex > best.index) {
+            return best;
+        }
+        if (!node.openEnded.isEmpty()) {
+            best = first(best, node.openEnded.get(0));
+        }
+        if (depth == segments.size()) {
+            for (Entry entry : node.exact) {
+                if (entry.trailingSlash == trailingSlash) {
+                    best = first(best, entry);
+                    break;
+                }
+            }
+            if (trailingSlash && node.wildcard != null && !node.wildcard.openEnded.isEmpty()) {
+                // "/foo/*" matches "/foo/"
+                best = first(best, node.wildcard.openEnded.get(0));
+            }
+            return best;
+        }
+        TrieNode literal = node.literals.get(segments.get(depth));
+        if (literal != null) {
+            best = search(literal, segments, depth + 1, trailingSlash, best);
+        }
+        if (node.wildcard != null) {
+            best = search(node.wildcard, segments, depth + 1, trailingSlash, best);
+        }
+        return best;
+    }
+
+    private static Entry first(Entry best, Entry candidate) {
+        return best == null || candidate.index < best.index ? candidate : best;
+    }
+
+    static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = path.length();
+            }
+            if (end > start) {
+                segments.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    static class Match {
+
+        private final Route route;
+        private final List<String> splats;
+        private final Map<String, String> pathParams;
+
+        Match(Route route, List<String> splats, Map<String, String> pathParams) {
+            this.route = route;
+            this.splats = splats;
+            this.pathParams = pathParams;
+        }
+
+        Route route() {
+            return route;
+        }
+
+        List<String> splats() {
+            return splats;
+        }
+
+        Map<String, String> pathParams() {
+            return pathParams;
+        }
+    }
+
+    private static class Entry {
+
+        private final int index;
+        private final Route route;
+        private final List<String> segments;
+        private final boolean openEnded;
+        private final boolean trailingSlash;
+
+        private Entry(int index, Route route) {
+            this.index = index;
+            this.route = route;
+            this.segments = segments(route.pattern());
+            this.openEnded = route.pattern().endsWith("*");
+            this.trailingSlash = route.pattern().endsWith("/");
+        }
+    }
+
+    private static class TrieNode {
+
+        private final Map<String, TrieNode> literals = new HashMap<>();
+        private final List<Entry> exact = new ArrayList<>();
+        private final List<Entry> openEnded = new ArrayList<>();
+        private TrieNode wildcard;
+        private int minIndex = Integer.MAX_VALUE;
+
+        private TrieNode child(String segment) {
+            if (segment.startsWith(":") || segment.equals("*")) {
+                if (wildcard == null) {
+                    wildcard = new TrieNode();
+                }
+                return wildcard;
+            }
+            return literals.computeIfAbsent(segment, s -> new TrieNode());
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package webster.routing;
 
+import webster.decisions.CompiledFlow;
 import webster.decisions.DefaultFlow;
+import webster.decisions.FlowCompiler;
+import webster.decisions.FlowListener;
+import webster.decisions.Node;
 import webster.links.ExpandableLink;
 import webster.requestresponse.Request;
 import webster.requestresponse.Response;
+import webster.resource.BlockingResource;
+import webster.resource.BlockingResourceAdapter;
+import webster.resource.MemoizingResource;
 import webster.resource.Resource;
+import webster.util.ConcurrencyLimiter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -30,23 +38,133 @@ public class RoutingBuilder {
 
         private final String pattern;
 
-        private BiFunction<Resource, Request, CompletableFuture<Response>> decisionFlow = DefaultFlow.get();
+        // null means the default flow, specialized for the class of the resource
+        private BiFunction<Resource, Request, CompletableFuture<Response>> decisionFlow = null;
+        private boolean memoizing = false;
+        private boolean blocking = false;
+        private long maxBodyBytes = -1;
+        private long timeoutMillis = -1;
+        private ConcurrencyLimiter concurrencyLimiter = null;
+        private FlowListener flowListener = null;
+        private ResponseCache responseCache = null;
 
         public RouteToResourceBuilder(String pattern) {
             this.pattern = pattern;
         }
 
         public RouteToResourceBuilder using(BiFunction<Resource, Request, CompletableFuture<Response>> decisionFlow) {
-            this.decisionFlow = decisionFlow;
+            this.decisionFlow = decisionFlow instanceof Node
+                    ? FlowCompiler.compile((Node) decisionFlow)
+                    : decisionFlow;
+            return this;
+        }
+
+        // resource callbacks like etag or lastModified are run at most once per request
+        public RouteToResourceBuilder memoizing() {
+            this.memoizing = true;
+            return this;
+        }
+
+        // the resource blocks the calling thread, so it must not run on the event loop even if the server runs
+        // non-blocking handlers inline
+        public RouteToResourceBuilder blocking() {
+            this.blocking = true;
+            return this;
+        }
+
+        // requests with larger bodies are answered with 413
+        public RouteToResourceBuilder withMaxBodyBytes(long maxBodyBytes) {
+            this.maxBodyBytes = maxBodyBytes;
+            return this;
+        }
+
+        // replaces the server's timeout for requests to this route
+        public RouteToResourceBuilder withTimeoutMillis(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        // requests beyond the limiter's current limit are answered with 503 and Retry-After
+        public RouteToResourceBuilder withConcurrencyLimit(ConcurrencyLimiter limiter) {
+            this.concurrencyLimiter = limiter;
+            return this;
+        }
+
+        public RouteToResourceBuilder withAdaptiveConcurrencyLimit() {
+            return withConcurrencyLimit(new ConcurrencyLimiter());
+        }
+
+        // every request is reported to the listener as a request of this route's pattern
+        public RouteToResourceBuilder withFlowListener(FlowListener listener) {
+            this.flowListener = listener;
+            return this;
+        }
+
+        // cache hits are answered before the other limits of the route apply
+        public RouteToResourceBuilder cachedIn(ResponseCache cache) {
+            this.responseCache = cache;
             return this;
         }
 
         public Route toResource(Supplier<Resource> resource) {
-            return new Route(pattern, request -> decisionFlow.apply(resource.get(), request));
+            return limited(new Route(pattern, request -> {
+                Resource r = resource.get();
+                return flowFor(r).apply(memoizing ? new MemoizingResource(r) : r, request);
+            }, blocking));
         }
 
         public Route toResource(Resource singleton) {
-            return toResource(() -> singleton);
+            BiFunction<Resource, Request, CompletableFuture<Response>> flow = flowFor(singleton);
+            return limited(memoizing
+                    ? new Route(pattern, request -> flow.apply(new MemoizingResource(singleton), request), blocking)
+                    : new Route(pattern, request -> flow.apply(singleton, request), blocking));
+        }
+
+        // blocking resources are always run on the executor service of the server, never on the event loop
+        public Route toBlockingResource(Supplier<BlockingResource> resource) {
+            blocking();
+            return toResource(() -> new BlockingResourceAdapter(resource.get()));
+        }
+
+        public Route toBlockingResource(BlockingResource singleton) {
+            blocking();
+            return toResource(new BlockingResourceAdapter(singleton));
+        }
+
+        private Route limited(Route route) {
+            Route limited = maxBodyBytes >= 0 ? route.decoratedWith(Decorators.limitBodyTo(maxBodyBytes)) : route;
+            if (concurrencyLimiter != null) {
+                limited = limited.decoratedWith(Decorators.limitConcurrency(concurrencyLimiter, decisionFlow == null));
+            }
+            if (timeoutMillis >= 0) {
+                limited = limited.decoratedWith(Decorators.timeoutAfter(timeoutMillis));
+            }
+            return responseCache != null ? limited.decoratedWith(Decorators.cacheResponses(responseCache)) : limited;
+        }
+
+        private BiFunction<Resource, Request, CompletableFuture<Response>> flowFor(Resource resource) {
+            BiFunction<Resource, Request, CompletableFuture<Response>> flow =
+                    decisionFlow != null ? decisionFlow : DefaultFlow.specializedFor(resource);
+            if (flowListener == null) {
+                return flow;
+            }
+            // flows that aren't made of nodes are reported as a single node
+            CompiledFlow compiled = FlowCompiler.compile(flow instanceof Node ? (Node) flow : new CustomFlow(flow));
+            return compiled.listenedBy(flowListener, pattern);
+        }
+    }
+
+    private static class CustomFlow implements Node {
+
+        private final BiFunction<Resource, Request, CompletableFuture<Response>> flow;
+
+        private CustomFlow(BiFunction<Resource, Request, CompletableFuture<Response>> flow) {
+            this.flow = flow;
+        }
+
+        @Override
+        public CompletableFuture<Response> apply(Resource resource, Request request) {
+            return flow.apply(resource, request);
         }
     }
 
@@ -60,7 +178,7 @@ public class RoutingBuilder {
         }
 
         public RoutingTable build() {
-            return new RoutingTable(routes);
+            return new RoutingTable(new RouteTrie(new ArrayList<>(routes)));
         }
     }
 }
@@ -11,17 +11,21 @@ import java.util.concurrent.CompletableFuture;
 
 public class RoutingTable implements Decoratable<Request, CompletableFuture<Response>> {
 
-    private final List<Route> routes;
+    private final RouteTrie routes;
 
     public RoutingTable(List<Route> routes) {
+        this(new RouteTrie(routes));
+    }
+
+    RoutingTable(RouteTrie routes) {
         this.routes = routes;
     }
 
     @Override
     public CompletableFuture<Response> apply(Request request) {
-        Optional<Route> route = routes.stream().filter(r -> r.matches(request)).findFirst();
-        return route.isPresent()
-                ? route.get().apply(request)
+        Optional<RouteTrie.Match> match = routes.match(request.uri());
+        return match.isPresent()
+                ? match.get().route().applyMatched(request.withSplatsAndPathParams(match.get().splats(), match.get().pathParams()))
                 : CompletableFuture.completedFuture(new Response(404, Responses.bodyFrom("not found"), Maps.newStringMap().with("Content-Type", "text/plain").build()));
     }
 }
@@ -0,0 +1,153 @@
+package webster.util;
+
+import webster.requestresponse.Request;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// An adaptive limit on the number of requests in flight (additive increase, multiplicative decrease). The limit grows
+// by about one for every limit's worth of requests that complete in time and is cut by a tenth when a request fails,
+// runs out of time or takes much longer than usual. Usual is a slowly moving average of the observed latencies, so no
+// latency target has to be configured. The limit is cut at most once per generation of requests, like a TCP window.
+public class ConcurrencyLimiter {
+
+    private static final String rejectedKey = "webster.rejectedRetryAfter";
+    private static final double backoff = 0.9;
+    // a request this many times slower than the average counts as a sign of overload
+    private static final double tolerance = 2.0;
+    // and at least this much slower, so that jitter of very fast requests doesn't count
+    private static final long slackNanos = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int retryAfterSeconds;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    // replaced as a whole, so that completions don't contend for a lock
+    private final AtomicReference<State> state;
+
+    public ConcurrencyLimiter() {
+        this(20, 1, 1000, 1);
+    }
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int retryAfterSeconds) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.limit = initialLimit;
+        this.state = new AtomicReference<>(new State(initialLimit, 0, 0));
+    }
+
+    public Optional<Permit> tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return Optional.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Permit(current + 1, state.get().generation, System.nanoTime()));
+            }
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    // marks a request that has been turned away, the default decision flow answers it with 503
+    public static void reject(Request request, int retryAfterSeconds) {
+        request.context().put(rejectedKey, retryAfterSeconds);
+    }
+
+    public static boolean isRejected(Request request) {
+        return request.context().get(rejectedKey).isPresent();
+    }
+
+    public static Optional<Integer> retryAfter(Request request) {
+        return request.context().get(rejectedKey);
+    }
+
+    private void onSample(Permit permit, long latencyNanos, boolean dropped) {
+        while (true) {
+            State current = state.get();
+            State next = current.next(permit, latencyNanos, dropped);
+            if (state.compareAndSet(current, next)) {
+                limit = (int) next.estimate;
+                return;
+            }
+        }
+    }
+
+    private class State {
+        private final double estimate;
+        private final double averageNanos;
+        private final long generation;
+
+        private State(double estimate, double averageNanos, long generation) {
+            this.estimate = estimate;
+            this.averageNanos = averageNanos;
+            this.generation = generation;
+        }
+
+        private State next(Permit permit, long latencyNanos, boolean dropped) {
+            boolean slow = averageNanos > 0
+                    && latencyNanos > Math.max(tolerance * averageNanos, averageNanos + slackNanos);
+            double average = dropped ? averageNanos
+                    : averageNanos == 0 ? latencyNanos : averageNanos * 0.99 + latencyNanos * 0.01;
+            if (dropped || slow) {
+                // requests that started before the last cut don't cut again
+                return permit.generation == generation
+                        ? new State(Math.max(minLimit, estimate * backoff), average, generation + 1)
+                        : new State(estimate, average, generation);
+            }
+            // only grow while the limit is actually used
+            return permit.inFlight * 2 >= estimate
+                    ? new State(Math.min(maxLimit, estimate + 1 / estimate), average, generation)
+                    : new State(estimate, average, generation);
+        }
+    }
+
+    public class Permit {
+        private final int inFlight;
+        private final long generation;
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlight, long generation, long startNanos) {
+            this.inFlight = inFlight;
+            this.generation = generation;
+            this.startNanos = startNanos;
+        }
+
+        // the request has been answered in time
+        public void release() {
+            complete(false);
+        }
+
+        // the request failed or ran out of time
+        public void drop() {
+            complete(true);
+        }
+
+        private void complete(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                ConcurrencyLimiter.this.inFlight.decrementAndGet();
+                onSample(this, System.nanoTime() - startNanos, dropped);
+            }
+        }
+    }
+}
@@ -1,18 +1,39 @@
 package webster.util;
 
 import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
 import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 public class Futures {
 
-    private static final Timer timer = new HashedWheelTimer();
+    // daemon threads, a pending timeout must not keep the JVM alive
+    private static final Timer timer = new HashedWheelTimer(new DefaultThreadFactory("webster-timer", true));
 
+    // completing or cancelling the future early removes it from the timer
     public static <T> CompletableFuture<T> afterTimeout(T value, long millis) {
         CompletableFuture<T> future = new CompletableFuture<>();
-        timer.newTimeout(t -> future.complete(value), millis, TimeUnit.MILLISECONDS);
+        Timeout timeout = timer.newTimeout(t -> future.complete(value), millis, TimeUnit.MILLISECONDS);
+        future.whenComplete((v, e) -> timeout.cancel());
         return future;
     }
+
+    public static <T> CompletableFuture<T> failed(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    public static boolean isCompletedNormally(CompletableFuture<?> future) {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    // the failure that dependent futures wrap in a CompletionException
+    public static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
 }
@@ -0,0 +1,29 @@
+package webster.util;
+
+import java.util.function.Supplier;
+
+// Computes a value the first time it's asked for. Concurrent first calls may compute it more than once, so the
+// supplier must not have side effects.
+public class Lazy<T> implements Supplier<T> {
+
+    private final Supplier<T> supplier;
+    private volatile T value;
+
+    private Lazy(Supplier<T> supplier) {
+        this.supplier = supplier;
+    }
+
+    public static <T> Lazy<T> of(Supplier<T> supplier) {
+        return new Lazy<>(supplier);
+    }
+
+    @Override
+    public T get() {
+        T v = value;
+        if (v == null) {
+            v = supplier.get();
+            value = v;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,28 @@
+package webster.util;
+
+import webster.requestresponse.Request;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+// Requests handled on a netty event loop carry the executor that blocking work has to be moved to.
+public class Offload {
+
+    private static final String executorKey = "webster.offloadExecutor";
+
+    public static Request runningInline(Request request, Executor offloadExecutor) {
+        request.context().put(executorKey, offloadExecutor);
+        return request;
+    }
+
+    public static <T> CompletableFuture<T> blocking(Request request, Supplier<CompletableFuture<T>> work) {
+        Optional<Executor> executor = request.context().get(executorKey);
+        if (!executor.isPresent()) {
+            return work.get();
+        }
+        request.context().remove(executorKey);
+        return CompletableFuture.supplyAsync(work, executor.get()).thenCompose(f -> f);
+    }
+}
@@ -0,0 +1,59 @@
+package webster.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VirtualThreads {
+    private final static Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+    // null before JDK 21
+    private static final Method newVirtualThreadPerTaskExecutor = lookUpFactory();
+
+    public static boolean isAvailable() {
+        return newVirtualThreadPerTaskExecutor != null;
+    }
+
+    // one virtual thread per task on JDK 21+, otherwise an unbounded pool of daemon platform threads
+    public static ExecutorService executor() {
+        ExecutorService executor = virtualThreadPerTaskExecutor();
+        if (executor != null) {
+            return executor;
+        }
+        logger.warn("virtual threads are not available on this jvm, blocking resources run on platform threads");
+        return Executors.newCachedThreadPool(daemonThreads("webster-blocking-"));
+    }
+
+    private static ExecutorService virtualThreadPerTaskExecutor() {
+        if (newVirtualThreadPerTaskExecutor == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static Method lookUpFactory() {
+        try {
+            // looked up reflectively because webster is built for java 8
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
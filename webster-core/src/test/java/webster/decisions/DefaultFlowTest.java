@@ -0,0 +1,132 @@
+package webster.decisions;
+
+import org.junit.Assert;
+import org.junit.Test;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.resource.Resource;
+import webster.routing.Route;
+import webster.routing.RoutingBuilder;
+import webster.util.ConcurrencyLimiter;
+import webster.util.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DefaultFlowTest {
+
+    private final Resource resource = new Resource() {
+        @Override
+        public CompletableFuture<Optional<Instant>> lastModified(Request request) {
+            return CompletableFuture.completedFuture(Optional.of(Instant.parse("2015-03-01T10:00:00.250Z")));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<ResponseBody> entity(Request request) {
+            return CompletableFuture.completedFuture(Responses.bodyFrom("hello"));
+        }
+    };
+
+    @Test
+    public void answersIfModifiedSince() throws Exception {
+        Assert.assertEquals(304, status("Sun, 01 Mar 2015 10:00:00 GMT"));
+        Assert.assertEquals(200, status("Sun, 01 Mar 2015 09:59:59 GMT"));
+        Assert.assertEquals(200, status("not a date"));
+    }
+
+    @Test
+    public void answersRejectedRequestsWith503() throws Exception {
+        Request request = new Request("GET", "/", Collections.emptyMap(), new ByteArrayInputStream(new byte[0]),
+                Collections.emptyMap(), Collections.emptyList(), Collections.emptyMap());
+        ConcurrencyLimiter.reject(request, 3);
+        Response response = DefaultFlow.specializedFor(resource).apply(resource, request).get();
+        Assert.assertEquals(503, response.status());
+        Assert.assertEquals("3", response.headers().get("Retry-After"));
+    }
+
+    @Test
+    public void memoizesCallbacksUntilTheResourceChanges() throws Exception {
+        AtomicInteger etags = new AtomicInteger();
+        AtomicInteger mediaTypes = new AtomicInteger();
+        AtomicInteger version = new AtomicInteger(1);
+        Route route = RoutingBuilder.from("/").memoizing().toResource(() -> new Resource() {
+            @Override
+            public CompletableFuture<Optional<String>> etag(Request request) {
+                etags.incrementAndGet();
+                return CompletableFuture.completedFuture(Optional.of("\"v" + version.get() + "\""));
+            }
+
+            @Override
+            public CompletableFuture<Set<String>> supportedMediaTypes(Request request) {
+                mediaTypes.incrementAndGet();
+                return CompletableFuture.completedFuture(Collections.singleton("text/plain"));
+            }
+
+            @Override
+            public Set<String> allowedMethods() {
+                return new HashSet<>(Arrays.asList("GET", "PUT"));
+            }
+
+            @Override
+            public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+                return CompletableFuture.completedFuture(true);
+            }
+
+            @Override
+            public CompletableFuture<Void> onPut(Request request) {
+                version.incrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public CompletableFuture<Boolean> respondWithEntity(Request request) {
+                return CompletableFuture.completedFuture(true);
+            }
+
+            @Override
+            public CompletableFuture<ResponseBody> entity(Request request) {
+                return CompletableFuture.completedFuture(Responses.bodyFrom("hello"));
+            }
+        });
+
+        Response notModified = route.apply(request("GET", "If-None-Match", "\"v1\"")).get();
+        Assert.assertEquals(304, notModified.status());
+        Assert.assertEquals(1, etags.get());
+        Assert.assertEquals(1, mediaTypes.get());
+
+        etags.set(0);
+        mediaTypes.set(0);
+        Response put = route.apply(request("PUT", "If-Match", "\"v1\"")).get();
+        Assert.assertEquals("\"v2\"", put.headers().get("ETag"));
+        Assert.assertEquals(2, etags.get());
+        Assert.assertEquals(1, mediaTypes.get());
+    }
+
+    private static Request request(String method, String header, String value) {
+        return new Request(method, "/", Maps.newStringMap().with(header, value).build(),
+                new ByteArrayInputStream(new byte[0]), Collections.emptyMap(), Collections.emptyList(),
+                Collections.emptyMap());
+    }
+
+    private int status(String ifModifiedSince) throws Exception {
+        Map<String, String> headers = Maps.newStringMap().with("If-Modified-Since", ifModifiedSince).build();
+        Request request = new Request("GET", "/", headers, new ByteArrayInputStream(new byte[0]),
+                Collections.emptyMap(), Collections.emptyList(), Collections.emptyMap());
+        return DefaultFlow.get().apply(resource, request).get().status();
+    }
+}
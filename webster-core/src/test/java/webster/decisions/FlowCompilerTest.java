@@ -0,0 +1,96 @@
+package webster.decisions;
+
+import org.junit.Assert;
+import org.junit.Test;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.resource.Resource;
+import webster.util.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static webster.decisions.NodeBuilder.*;
+
+public class FlowCompilerTest {
+
+    private final Node shared = complete("shared", (r, req) -> CompletableFuture.completedFuture(new Response(200)));
+
+    private final Node flow = decide("isPost", (r, req) -> CompletableFuture.completedFuture("POST".equals(req.method())))
+            .onTrue(act("post", (r, req) -> CompletableFuture.completedFuture(null)).andThen(shared))
+            .onFalse(decide("isDelete", (r, req) -> CompletableFuture.completedFuture("DELETE".equals(req.method())))
+                    .onTrue(complete("deleted", (r, req) -> CompletableFuture.completedFuture(new Response(204))))
+                    .onFalse(shared));
+
+    @Test
+    public void compiledFlowSharesStatesForSharedNodes() {
+        Assert.assertEquals(5, FlowCompiler.compile(flow).size());
+    }
+
+    @Test
+    public void compiledFlowAnswersLikeNodeGraph() throws Exception {
+        CompiledFlow compiled = FlowCompiler.compile(flow);
+        for (String method : new String[]{"GET", "POST", "DELETE"}) {
+            Assert.assertEquals(
+                    flow.apply(resource(), request(method, Collections.emptyMap())).get().status(),
+                    compiled.apply(resource(), request(method, Collections.emptyMap())).get().status());
+        }
+    }
+
+    @Test
+    public void compiledFlowResumesAfterIncompleteFuture() throws Exception {
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        Node async = decide("pending", (r, req) -> pending)
+                .onTrue(complete("ok", (r, req) -> CompletableFuture.completedFuture(new Response(200))))
+                .onFalse(complete("notFound", (r, req) -> CompletableFuture.completedFuture(new Response(404))));
+        CompletableFuture<Response> response = FlowCompiler.compile(async).apply(resource(), request("GET", Collections.emptyMap()));
+        Assert.assertFalse(response.isDone());
+        pending.complete(false);
+        Assert.assertEquals(404, response.get().status());
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void compiledFlowTurnsExceptionsIntoFailedFutures() throws Exception {
+        Node failing = decide("failing", (r, req) -> {
+            throw new IllegalStateException();
+        }).onTrue(shared).onFalse(shared);
+        FlowCompiler.compile(failing).apply(resource(), request("GET", Collections.emptyMap())).get();
+    }
+
+    @Test
+    public void defaultFlowAnswersConditionalRequests() throws Exception {
+        Assert.assertEquals(200, DefaultFlow.get().apply(resource(), request("GET", Collections.emptyMap())).get().status());
+        Assert.assertEquals(304, DefaultFlow.get().apply(resource(),
+                request("GET", Maps.newStringMap().with("If-None-Match", "1").build())).get().status());
+    }
+
+    private static Request request(String method, Map<String, String> headers) {
+        return new Request(method, "/", headers, new ByteArrayInputStream(new byte[0]), Collections.emptyMap(),
+                Collections.emptyList(), Collections.emptyMap());
+    }
+
+    private static Resource resource() {
+        return new Resource() {
+            @Override
+            public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+                return CompletableFuture.completedFuture(true);
+            }
+
+            @Override
+            public CompletableFuture<ResponseBody> entity(Request request) {
+                return CompletableFuture.completedFuture(Responses.bodyFrom("hello"));
+            }
+
+            @Override
+            public CompletableFuture<Optional<String>> etag(Request request) {
+                return CompletableFuture.completedFuture(Optional.of("1"));
+            }
+        };
+    }
+}
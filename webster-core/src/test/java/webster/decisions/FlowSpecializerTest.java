@@ -0,0 +1,108 @@
+package webster.decisions;
+
+import org.junit.Assert;
+import org.junit.Test;
+import webster.requestresponse.Request;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.resource.BlockingResource;
+import webster.resource.BlockingResourceAdapter;
+import webster.resource.Resource;
+import webster.util.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+public class FlowSpecializerTest {
+
+    public static class Minimal implements Resource {
+        @Override
+        public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<ResponseBody> entity(Request request) {
+            return CompletableFuture.completedFuture(Responses.bodyFrom("hello"));
+        }
+    }
+
+    public static class WithEtagAndAuthorization extends Minimal {
+        @Override
+        public CompletableFuture<Optional<String>> etag(Request request) {
+            return CompletableFuture.completedFuture(Optional.of("1"));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> isAuthorized(Request request) {
+            return CompletableFuture.completedFuture(request.header("Authorization").value().isPresent());
+        }
+
+        @Override
+        public Set<String> allowedMethods() {
+            return new HashSet<>(Arrays.asList("GET", "DELETE"));
+        }
+    }
+
+    @Test
+    public void specializedFlowIsShorter() {
+        int generic = ((CompiledFlow) DefaultFlow.get()).size();
+        int minimal = ((CompiledFlow) DefaultFlow.specializedFor(new Minimal())).size();
+        int withEtag = ((CompiledFlow) DefaultFlow.specializedFor(new WithEtagAndAuthorization())).size();
+        Assert.assertTrue(minimal < withEtag);
+        Assert.assertTrue(withEtag < generic);
+    }
+
+    public static class MinimalBlocking implements BlockingResource {
+        @Override
+        public boolean doesRequestedResourceExist(Request request) {
+            return true;
+        }
+
+        @Override
+        public ResponseBody entity(Request request) {
+            return Responses.bodyFrom("hello");
+        }
+    }
+
+    @Test
+    public void blockingResourcesAreSpecializedByTheirOwnClass() throws Exception {
+        Resource resource = new BlockingResourceAdapter(new MinimalBlocking());
+        Node flow = DefaultFlow.specializedFor(resource);
+        Assert.assertEquals(((CompiledFlow) DefaultFlow.specializedFor(new Minimal())).size(), ((CompiledFlow) flow).size());
+        Assert.assertEquals(200, flow.apply(resource, request("GET", Collections.emptyMap())).get().status());
+    }
+
+    @Test
+    public void specializedFlowAnswersLikeGenericFlow() throws Exception {
+        List<Map<String, String>> headers = Arrays.asList(
+                Collections.emptyMap(),
+                Maps.newStringMap().with("Authorization", "secret").build(),
+                Maps.newStringMap().with("Authorization", "secret").with("If-None-Match", "1").build(),
+                Maps.newStringMap().with("Authorization", "secret").with("If-Match", "2").build(),
+                Maps.newStringMap().with("Accept", "application/json").build());
+        for (Resource resource : Arrays.asList(new Minimal(), new WithEtagAndAuthorization())) {
+            for (String method : Arrays.asList("GET", "HEAD", "POST", "DELETE", "OPTIONS", "PATCH")) {
+                for (Map<String, String> h : headers) {
+                    Assert.assertEquals(resource.getClass().getSimpleName() + " " + method + " " + h,
+                            DefaultFlow.get().apply(resource, request(method, h)).get().status(),
+                            DefaultFlow.specializedFor(resource).apply(resource, request(method, h)).get().status());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void detectsOverridesInSuperclassesAndInterfaces() throws Exception {
+        Assert.assertFalse(FlowSpecializer.isOverridden(Minimal.class, Resource.class, Resource.class.getMethod("etag", Request.class)));
+        Assert.assertTrue(FlowSpecializer.isOverridden(WithEtagAndAuthorization.class, Resource.class, Resource.class.getMethod("etag", Request.class)));
+        Assert.assertTrue(FlowSpecializer.isOverridden(new WithEtagAndAuthorization() {
+        }.getClass(), Resource.class, Resource.class.getMethod("isAuthorized", Request.class)));
+    }
+
+    private static Request request(String method, Map<String, String> headers) {
+        return new Request(method, "/", headers, new ByteArrayInputStream(new byte[0]), Collections.emptyMap(),
+                Collections.emptyList(), Collections.emptyMap());
+    }
+}
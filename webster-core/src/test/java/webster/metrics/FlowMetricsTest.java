@@ -0,0 +1,91 @@
+package webster.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import webster.decisions.CompiledFlow;
+import webster.decisions.DefaultFlow;
+import webster.requestresponse.Request;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.resource.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+public class FlowMetricsTest {
+
+    private final Resource resource = new Resource() {
+        @Override
+        public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<ResponseBody> entity(Request request) {
+            return CompletableFuture.completedFuture(Responses.bodyFrom("hello"));
+        }
+    };
+
+    @Test
+    public void histogramQuantilesAreWithinBucketWidth() {
+        Histogram histogram = new Histogram();
+        for (long v = 1; v <= 100000; v++) {
+            histogram.record(v * 1000);
+        }
+        Assert.assertEquals(100000, histogram.count());
+        Assert.assertEquals(100000000L, histogram.max());
+        assertClose(50000000L, histogram.valueAt(0.5));
+        assertClose(99000000L, histogram.valueAt(0.99));
+        Assert.assertEquals(100000000L, histogram.valueAt(1.0));
+        Assert.assertEquals(0, new Histogram().valueAt(0.5));
+    }
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        for (long v : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123456789, Histogram.highestTrackableValue}) {
+            int index = Histogram.indexOf(v);
+            Assert.assertTrue(v <= Histogram.highestValueOf(index));
+            Assert.assertTrue(index == 0 || v > Histogram.highestValueOf(index - 1));
+        }
+    }
+
+    @Test
+    public void recordsRoutesNodesAndOutcomes() throws Exception {
+        FlowMetrics metrics = new FlowMetrics();
+        CompiledFlow flow = ((CompiledFlow) DefaultFlow.specializedFor(resource)).listenedBy(metrics, "/hello");
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(200, flow.apply(resource, request()).get().status());
+        }
+
+        FlowMetrics.RouteMetrics route = metrics.routes().get("/hello");
+        Assert.assertEquals(3, route.latency().count());
+        Assert.assertEquals(3, route.responses(200));
+        Assert.assertEquals(3, route.nodes().get("isExistingResource").decisions(true));
+        Assert.assertEquals(0, route.nodes().get("isExistingResource").decisions(false));
+        Assert.assertEquals(3, route.nodes().get("ok").latency().count());
+
+        String exposition = new PrometheusResource(metrics).render();
+        Assert.assertTrue(exposition.contains("webster_request_seconds_count{route=\"/hello\"} 3\n"));
+        Assert.assertTrue(exposition.contains("webster_responses_total{route=\"/hello\",status=\"200\"} 3\n"));
+        Assert.assertTrue(exposition.contains(
+                "webster_decisions_total{route=\"/hello\",node=\"isExistingResource\",result=\"true\"} 3\n"));
+        Assert.assertTrue(exposition.contains("webster_node_seconds_count{route=\"/hello\",node=\"ok\"} 3\n"));
+    }
+
+    @Test
+    public void unlistenedFlowsRecordNothing() throws Exception {
+        FlowMetrics metrics = new FlowMetrics();
+        Assert.assertEquals(200, DefaultFlow.specializedFor(resource).apply(resource, request()).get().status());
+        Assert.assertTrue(metrics.routes().isEmpty());
+    }
+
+    private static void assertClose(long expected, long actual) {
+        Assert.assertTrue(actual + " is not close to " + expected, Math.abs(actual - expected) <= expected / 16);
+    }
+
+    private static Request request() {
+        return new Request("GET", "/hello", Collections.emptyMap(), new ByteArrayInputStream(new byte[0]),
+                Collections.emptyMap(), Collections.emptyList(), Collections.emptyMap());
+    }
+}
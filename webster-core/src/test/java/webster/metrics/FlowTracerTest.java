@@ -0,0 +1,112 @@
+package webster.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import webster.decisions.CompiledFlow;
+import webster.decisions.DefaultFlow;
+import webster.decisions.FlowListener;
+import webster.requestresponse.Request;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.requestresponse.StringResponseBody;
+import webster.resource.Resource;
+import webster.util.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+public class FlowTracerTest {
+
+    private final Resource resource = new Resource() {
+        @Override
+        public CompletableFuture<Optional<String>> etag(Request request) {
+            return CompletableFuture.completedFuture(Optional.of("\"v1\""));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<ResponseBody> entity(Request request) {
+            return CompletableFuture.completedFuture(Responses.bodyFrom("hello"));
+        }
+    };
+
+    @Test
+    public void tracesRequestsWithTheTraceHeader() throws Exception {
+        FlowTracer tracer = new FlowTracer(0);
+        run(tracer, Collections.emptyMap());
+        Assert.assertTrue(tracer.traces().isEmpty());
+
+        Assert.assertEquals(304, run(tracer, Maps.newStringMap()
+                .with(FlowTracer.traceHeader, "why-304")
+                .with("If-None-Match", "\"v1\"")
+                .build()));
+        List<Trace> traces = tracer.traces();
+        Assert.assertEquals(1, traces.size());
+        Trace trace = traces.get(0);
+        Assert.assertEquals("why-304", trace.label());
+        Assert.assertEquals("/hello", trace.route());
+        Assert.assertEquals(304, trace.status());
+        Assert.assertFalse(trace.isTruncated());
+        List<String> steps = trace.steps().stream()
+                .map(step -> step.node() + " -> " + step.outcome())
+                .collect(Collectors.toList());
+        Assert.assertTrue(steps.toString(), steps.contains("ifNoneMatchExists -> true"));
+        Assert.assertEquals("304", trace.steps().get(trace.steps().size() - 1).outcome());
+    }
+
+    @Test
+    public void overwritesTheOldestTraces() throws Exception {
+        FlowTracer tracer = new FlowTracer(2, 64, 1.0);
+        for (int i = 0; i < 3; i++) {
+            run(tracer, Collections.emptyMap());
+        }
+        List<Trace> traces = tracer.traces();
+        Assert.assertEquals(2, traces.size());
+        Assert.assertEquals(2, traces.get(0).id());
+        Assert.assertEquals(1, traces.get(1).id());
+    }
+
+    @Test
+    public void truncatesLongFlows() throws Exception {
+        FlowTracer tracer = new FlowTracer(2, 3, 1.0);
+        run(tracer, Collections.emptyMap());
+        Trace trace = tracer.traces().get(0);
+        Assert.assertEquals(3, trace.steps().size());
+        Assert.assertTrue(trace.isTruncated());
+        Assert.assertEquals(200, trace.status());
+    }
+
+    @Test
+    public void servesTracesByLabel() throws Exception {
+        FlowTracer tracer = new FlowTracer(0);
+        FlowMetrics metrics = new FlowMetrics();
+        FlowListener both = FlowListener.both(metrics, tracer);
+        run(both, Maps.newStringMap().with(FlowTracer.traceHeader, "first").build());
+        run(both, Maps.newStringMap().with(FlowTracer.traceHeader, "second").build());
+        Assert.assertEquals(2, metrics.routes().get("/hello").latency().count());
+
+        Request request = new Request("GET", "/traces?label=second", Collections.emptyMap(),
+                new ByteArrayInputStream(new byte[0]),
+                Collections.singletonMap("label", Collections.singletonList("second")),
+                Collections.emptyList(), Collections.emptyMap());
+        String body = ((StringResponseBody) new TraceResource(tracer).entity(request).get()).content();
+        Assert.assertTrue(body, body.startsWith("trace 1 GET /hello route=/hello label=second status=200"));
+        Assert.assertFalse(body.contains("label=first"));
+    }
+
+    private int run(FlowListener listener, Map<String, String> headers) throws Exception {
+        CompiledFlow flow = ((CompiledFlow) DefaultFlow.specializedFor(resource)).listenedBy(listener, "/hello");
+        Request request = new Request("GET", "/hello", headers, new ByteArrayInputStream(new byte[0]),
+                Collections.emptyMap(), Collections.emptyList(), Collections.emptyMap());
+        return flow.apply(resource, request).get().status();
+    }
+}
@@ -0,0 +1,64 @@
+package webster.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.stream.ChunkedStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+public class GzipEncoderTest {
+
+    private final byte[] content = content();
+
+    @Test
+    public void gzipsStreamsChunkByChunk() throws Exception {
+        GzipEncoder encoder = new GzipEncoder(new ChunkedStream(new ByteArrayInputStream(content), 100), 6);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        while (!encoder.isEndOfInput()) {
+            ByteBuf chunk = encoder.readChunk(ByteBufAllocator.DEFAULT);
+            Assert.assertNotNull(chunk);
+            chunk.readBytes(gzipped, chunk.readableBytes());
+            chunk.release();
+        }
+        encoder.close();
+        Assert.assertArrayEquals(content, gunzip(gzipped.toByteArray()));
+    }
+
+    @Test
+    public void gzipsBuffers() throws Exception {
+        ByteBuf gzipped = GzipEncoder.gzip(Unpooled.wrappedBuffer(content), ByteBufAllocator.DEFAULT, 6);
+        byte[] bytes = new byte[gzipped.readableBytes()];
+        gzipped.readBytes(bytes);
+        gzipped.release();
+        Assert.assertTrue(bytes.length < content.length / 2);
+        Assert.assertArrayEquals(content, gunzip(bytes));
+    }
+
+    private static byte[] content() {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            text.append("{\"id\":").append(random.nextInt(1000)).append(",\"name\":\"item\"}");
+        }
+        return text.toString().getBytes();
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
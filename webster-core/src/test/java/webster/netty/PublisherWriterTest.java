@@ -0,0 +1,76 @@
+package webster.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.CharsetUtil;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+
+public class PublisherWriterTest {
+
+    private final EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+    private final ChannelHandlerContext ctx = channel.pipeline().firstContext();
+    private long requested = 0;
+    private boolean cancelled = false;
+
+    @Test
+    public void requestsChunksInBatchesAndWritesThem() {
+        PublisherWriter writer = new PublisherWriter(ctx, null, true);
+        writer.onSubscribe(subscription());
+        channel.runPendingTasks();
+        Assert.assertEquals(16, requested);
+
+        for (int i = 0; i < 8; i++) {
+            writer.onNext(ByteBuffer.wrap(("chunk" + i).getBytes(CharsetUtil.US_ASCII)));
+        }
+        channel.runPendingTasks();
+        Assert.assertEquals(24, requested);
+        writer.onComplete();
+        channel.runPendingTasks();
+
+        StringBuilder body = new StringBuilder();
+        for (Object out = channel.readOutbound(); out != null; out = channel.readOutbound()) {
+            HttpContent content = (HttpContent) out;
+            body.append(content.content().toString(CharsetUtil.US_ASCII));
+            content.release();
+            if (out instanceof LastHttpContent) {
+                Assert.assertNull(channel.readOutbound());
+                break;
+            }
+        }
+        Assert.assertEquals("chunk0chunk1chunk2chunk3chunk4chunk5chunk6chunk7", body.toString());
+        Assert.assertTrue(writer.isDone());
+    }
+
+    @Test
+    public void cancelsTheSubscriptionWhenTheConnectionIsGone() {
+        PublisherWriter writer = new PublisherWriter(ctx, null, true);
+        writer.onSubscribe(subscription());
+        channel.runPendingTasks();
+        writer.cancel();
+        Assert.assertTrue(cancelled);
+        writer.onNext(ByteBuffer.wrap(new byte[1]));
+        channel.runPendingTasks();
+        Assert.assertNull(channel.readOutbound());
+    }
+
+    private Subscription subscription() {
+        return new Subscription() {
+            @Override
+            public void request(long n) {
+                requested += n;
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+            }
+        };
+    }
+}
@@ -0,0 +1,148 @@
+package webster.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.util.CharsetUtil;
+import org.junit.Assert;
+import org.junit.Test;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.Responses;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+public class ResponseSequencerTest {
+
+    private int flushes = 0;
+    private final EmbeddedChannel channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            flushes++;
+            super.flush(ctx);
+        }
+    }, new ChannelInboundHandlerAdapter());
+    private final ChannelHandlerContext ctx = channel.pipeline().lastContext();
+
+    @Test
+    public void writesResponsesInRequestOrderWithOneFlush() {
+        ResponseSequencer sequencer = new ResponseSequencer(ctx, new AutoRead(channel.config()), 16);
+        ResponseSequencer.Ticket first = sequencer.next();
+        ResponseSequencer.Ticket second = sequencer.next();
+        ResponseSequencer.Ticket third = sequencer.next();
+
+        third.respond(() -> ctx.write("third"));
+        second.respond(() -> ctx.write("second"));
+        Assert.assertNull(channel.readOutbound());
+        Assert.assertEquals(0, flushes);
+
+        first.respond(() -> ctx.write("first"));
+        Assert.assertEquals("first", channel.readOutbound());
+        Assert.assertEquals("second", channel.readOutbound());
+        Assert.assertEquals("third", channel.readOutbound());
+        Assert.assertEquals(1, flushes);
+    }
+
+    @Test
+    public void heldResponsesHoldBackLaterOnes() {
+        ResponseSequencer sequencer = new ResponseSequencer(ctx, new AutoRead(channel.config()), 16);
+        ResponseSequencer.Ticket first = sequencer.next();
+        ResponseSequencer.Ticket second = sequencer.next();
+
+        first.respond(() -> {
+            ctx.write("first");
+            first.hold();
+        });
+        second.respond(() -> ctx.write("second"));
+        Assert.assertEquals("first", channel.readOutbound());
+        Assert.assertNull(channel.readOutbound());
+
+        first.release();
+        Assert.assertEquals("second", channel.readOutbound());
+    }
+
+    @Test
+    public void pausesReadsWhileTooManyRequestsAreOutstanding() {
+        ResponseSequencer sequencer = new ResponseSequencer(ctx, new AutoRead(channel.config()), 2);
+        ResponseSequencer.Ticket first = sequencer.next();
+        Assert.assertTrue(channel.config().isAutoRead());
+        ResponseSequencer.Ticket second = sequencer.next();
+        Assert.assertFalse(channel.config().isAutoRead());
+
+        second.respond(() -> ctx.write("second"));
+        Assert.assertFalse(channel.config().isAutoRead());
+        first.respond(() -> ctx.write("first"));
+        Assert.assertTrue(channel.config().isAutoRead());
+    }
+
+    @Test
+    public void answersPipelinedRequestsInOrder() throws Exception {
+        Map<String, CompletableFuture<Response>> pending = new HashMap<>();
+        EmbeddedChannel connection = new EmbeddedChannel(new HttpServerCodec(), new HttpObjectAggregator(1024),
+                new HttpHandler((Request request) -> pending.computeIfAbsent(request.uri(),
+                        uri -> new CompletableFuture<>()), Executors.newSingleThreadExecutor(), 10000, true));
+
+        connection.writeInbound(Unpooled.copiedBuffer(
+                "GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\nGET /fast HTTP/1.1\r\nHost: localhost\r\n\r\n",
+                CharsetUtil.US_ASCII));
+        Assert.assertEquals(2, pending.size());
+
+        pending.get("/fast").complete(new Response(200, Responses.bodyFrom("fast")));
+        connection.runPendingTasks();
+        Assert.assertNull(connection.readOutbound());
+
+        pending.get("/slow").complete(new Response(200, Responses.bodyFrom("slow")));
+        connection.runPendingTasks();
+        List<String> bodies = new ArrayList<>();
+        for (Object out = connection.readOutbound(); out != null; out = connection.readOutbound()) {
+            ByteBuf buf = (ByteBuf) out;
+            String response = buf.toString(CharsetUtil.US_ASCII);
+            bodies.add(response.substring(response.lastIndexOf('\n') + 1));
+            buf.release();
+        }
+        Assert.assertEquals(2, bodies.size());
+        Assert.assertEquals("slow", bodies.get(0));
+        Assert.assertEquals("fast", bodies.get(1));
+    }
+
+    @Test
+    public void answersAFailingWriteWith500AndCloses() throws Exception {
+        Map<String, CompletableFuture<Response>> pending = new HashMap<>();
+        EmbeddedChannel connection = new EmbeddedChannel(new HttpServerCodec(), new HttpObjectAggregator(1024),
+                new HttpHandler((Request request) -> pending.computeIfAbsent(request.uri(),
+                        uri -> new CompletableFuture<>()), Executors.newSingleThreadExecutor(), 10000, true));
+
+        String request = " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        connection.writeInbound(Unpooled.copiedBuffer(
+                "GET /first" + request + "GET /invalid" + request + "GET /last" + request, CharsetUtil.US_ASCII));
+        // netty rejects the header value while the response is written
+        pending.get("/invalid").complete(new Response(200, Responses.bodyFrom("invalid"))
+                .withAdditionalHeader("X-Invalid", "line\nbreak"));
+        pending.get("/last").complete(new Response(200, Responses.bodyFrom("last")));
+        pending.get("/first").complete(new Response(200, Responses.bodyFrom("first")));
+        connection.runPendingTasks();
+
+        StringBuilder out = new StringBuilder();
+        for (Object o = connection.readOutbound(); o != null; o = connection.readOutbound()) {
+            ByteBuf buf = (ByteBuf) o;
+            out.append(buf.toString(CharsetUtil.US_ASCII));
+            buf.release();
+        }
+        String responses = out.toString();
+        Assert.assertTrue(responses, responses.startsWith("HTTP/1.1 200 OK"));
+        Assert.assertTrue(responses, responses.contains("first"));
+        Assert.assertTrue(responses, responses.contains("HTTP/1.1 500 Internal Server Error"));
+        Assert.assertFalse(responses, responses.contains("last"));
+        Assert.assertFalse(connection.isOpen());
+    }
+}
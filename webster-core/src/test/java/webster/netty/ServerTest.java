@@ -0,0 +1,185 @@
+package webster.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http2.*;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import org.junit.Assert;
+import org.junit.Test;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.resource.BlockingResource;
+import webster.resource.Resource;
+import webster.routing.RoutingTable;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static webster.routing.RoutingBuilder.from;
+import static webster.routing.RoutingBuilder.routingTable;
+
+public class ServerTest {
+
+    private final Server server = new Server.Builder().withHttp2(true).withNonBlockingHandlers(true).build();
+    private final Function<Request, CompletableFuture<Response>> handler = request ->
+            CompletableFuture.completedFuture(new Response(200, Responses.bodyFrom("hello " + request.uri())));
+    // writes and reads the frames of the client side
+    private final EmbeddedChannel client = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+    private final ChannelHandlerContext clientContext = client.pipeline().firstContext();
+
+    @Test
+    public void startsOnAFreePortAndStops() throws Exception {
+        Server.Running running = new Server.Builder().withPort(0).withNonBlockingHandlers(true).build().start(handler);
+        try (Socket socket = new Socket("localhost", running.port())) {
+            socket.getOutputStream().write(
+                    "GET /one HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(CharsetUtil.US_ASCII));
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), CharsetUtil.US_ASCII));
+            Assert.assertEquals("HTTP/1.1 200 OK", reader.readLine());
+        } finally {
+            running.close();
+        }
+        try {
+            new Socket("localhost", running.port()).close();
+            Assert.fail("still listening");
+        } catch (ConnectException expected) {
+        }
+    }
+
+    @Test
+    public void runsNonBlockingRoutesInlineAndBlockingRoutesOnTheExecutor() throws Exception {
+        Map<String, Thread> threads = new ConcurrentHashMap<>();
+        RoutingTable routes = routingTable()
+                .withRoute(from("/inline").toResource(new Resource() {
+                    @Override
+                    public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+                        return CompletableFuture.completedFuture(true);
+                    }
+
+                    @Override
+                    public CompletableFuture<ResponseBody> entity(Request request) {
+                        threads.put(request.uri(), Thread.currentThread());
+                        return CompletableFuture.completedFuture(Responses.bodyFrom("inline"));
+                    }
+                }))
+                .withRoute(from("/blocking").toBlockingResource(new BlockingResource() {
+                    @Override
+                    public boolean doesRequestedResourceExist(Request request) {
+                        return true;
+                    }
+
+                    @Override
+                    public ResponseBody entity(Request request) {
+                        threads.put(request.uri(), Thread.currentThread());
+                        return Responses.bodyFrom("blocking");
+                    }
+                }))
+                .build();
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "test-executor"));
+        Server.Running running = new Server.Builder().withPort(0).withNonBlockingHandlers(true)
+                .withExecutorService(executor).build().start(routes);
+        try {
+            Assert.assertEquals("HTTP/1.1 200 OK", statusLine(running.port(), "/inline"));
+            Assert.assertEquals("HTTP/1.1 200 OK", statusLine(running.port(), "/blocking"));
+        } finally {
+            running.close();
+            executor.shutdown();
+        }
+        Assert.assertTrue(threads.get("/inline").getName(), threads.get("/inline") instanceof FastThreadLocalThread);
+        Assert.assertEquals("test-executor", threads.get("/blocking").getName());
+    }
+
+    @Test
+    public void fallsBackToHttp1WithoutUpgrade() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        server.initCleartextHttp2(channel.pipeline(), handler);
+
+        channel.writeInbound(Unpooled.copiedBuffer("GET /one HTTP/1.1\r\nHost: localhost\r\n\r\n", CharsetUtil.US_ASCII));
+        channel.runPendingTasks();
+
+        Assert.assertNotNull(channel.pipeline().get(HttpObjectAggregator.class));
+        Assert.assertNotNull(channel.pipeline().get(HttpHandler.class));
+        String response = readOutbound(channel).toString(CharsetUtil.US_ASCII);
+        Assert.assertTrue(response, response.startsWith("HTTP/1.1 200 OK"));
+        Assert.assertTrue(response, response.endsWith("hello /one"));
+    }
+
+    @Test
+    public void servesStreamsWithPriorKnowledge() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        server.initCleartextHttp2(channel.pipeline(), handler);
+
+        ByteBuf request = Unpooled.buffer();
+        request.writeBytes(Http2CodecUtil.connectionPrefaceBuf());
+        Http2FrameWriter writer = new DefaultHttp2FrameWriter();
+        writer.writeSettings(clientContext, new Http2Settings(), clientContext.newPromise());
+        // an embedded channel has no server parent, so stream 1 would be taken for an upgraded request
+        writer.writeHeaders(clientContext, 3, new DefaultHttp2Headers().method("GET").path("/one").scheme("http"),
+                0, true, clientContext.newPromise());
+        writer.writeHeaders(clientContext, 5, new DefaultHttp2Headers().method("GET").path("/two").scheme("http"),
+                0, true, clientContext.newPromise());
+        client.flush();
+        request.writeBytes(readOutbound(client));
+        channel.writeInbound(request);
+        channel.runPendingTasks();
+
+        Assert.assertNotNull(channel.pipeline().get(Http2FrameCodec.class));
+        Assert.assertNotNull(channel.pipeline().get(Http2MultiplexHandler.class));
+        Map<Integer, String> streams = new TreeMap<>();
+        ByteBuf response = readOutbound(channel);
+        Http2FrameReader reader = new DefaultHttp2FrameReader();
+        while (response.isReadable()) {
+            reader.readFrame(clientContext, response, new Http2FrameAdapter() {
+                @Override
+                public void onHeadersRead(ChannelHandlerContext ctx, int streamId, Http2Headers headers, int padding,
+                                          boolean endStream) {
+                    streams.merge(streamId, headers.status() + " ", String::concat);
+                }
+
+                @Override
+                public int onDataRead(ChannelHandlerContext ctx, int streamId, ByteBuf data, int padding,
+                                      boolean endOfStream) {
+                    streams.merge(streamId, data.toString(CharsetUtil.US_ASCII), String::concat);
+                    return data.readableBytes() + padding;
+                }
+            });
+        }
+        response.release();
+        Assert.assertEquals("200 hello /one", streams.get(3));
+        Assert.assertEquals("200 hello /two", streams.get(5));
+    }
+
+    private static String statusLine(int port, String path) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            String request = "GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(CharsetUtil.US_ASCII));
+            return new BufferedReader(new InputStreamReader(socket.getInputStream(), CharsetUtil.US_ASCII)).readLine();
+        }
+    }
+
+    private static ByteBuf readOutbound(EmbeddedChannel channel) {
+        ByteBuf all = Unpooled.buffer();
+        for (Object out = channel.readOutbound(); out != null; out = channel.readOutbound()) {
+            ByteBuf buf = (ByteBuf) out;
+            all.writeBytes(buf);
+            buf.release();
+        }
+        return all;
+    }
+}
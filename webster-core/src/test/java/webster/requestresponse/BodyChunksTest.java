@@ -0,0 +1,37 @@
+package webster.requestresponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+
+public class BodyChunksTest {
+
+    @Test
+    public void inputStreamViewReadsAllChunks() {
+        byte[] body = new byte[20000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        InputStream in = BodyChunks.asInputStream(BodyChunks.of(new ByteArrayInputStream(body)));
+        Assert.assertEquals(new String(body), new Scanner(in, "UTF-8").useDelimiter("\\A").next());
+    }
+
+    @Test
+    public void limitFailsOnceExceeded() throws Exception {
+        BodyChunks chunks = BodyChunks.of(new ByteArrayInputStream(new byte[10000])).limitedTo(9000);
+        Optional<ByteBuffer> first = chunks.next().get();
+        Assert.assertEquals(8192, first.get().remaining());
+        try {
+            chunks.next().get();
+            Assert.fail("limit not enforced");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof BodyTooLargeException);
+        }
+    }
+}
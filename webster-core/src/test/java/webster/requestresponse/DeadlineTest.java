@@ -0,0 +1,44 @@
+package webster.requestresponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class DeadlineTest {
+
+    @Test
+    public void expiresAfterItsBudget() throws Exception {
+        Deadline deadline = Deadline.after(50);
+        deadline.expired().get(2, TimeUnit.SECONDS);
+        Assert.assertTrue(deadline.isExpired());
+        Assert.assertEquals(0, deadline.remainingMillis());
+    }
+
+    @Test
+    public void timerFollowsANewBudget() throws Exception {
+        Deadline deadline = Deadline.after(60000);
+        CompletableFuture<Void> expired = deadline.expired();
+        deadline.setBudgetMillis(50);
+        expired.get(2, TimeUnit.SECONDS);
+
+        Deadline extended = Deadline.after(50);
+        CompletableFuture<Void> extendedExpired = extended.expired();
+        extended.setBudgetMillis(60000);
+        Thread.sleep(300);
+        Assert.assertFalse(extendedExpired.isDone());
+        Assert.assertTrue(extended.remainingMillis() > 50000);
+    }
+
+    @Test
+    public void cancelledDeadlinesDontExpire() throws Exception {
+        Deadline deadline = Deadline.after(50);
+        CompletableFuture<Void> expired = deadline.expired();
+        deadline.cancel();
+        Thread.sleep(300);
+        Assert.assertFalse(expired.isDone());
+        Assert.assertFalse(Deadline.none().isExpired());
+        Assert.assertEquals(Long.MAX_VALUE, Deadline.none().remainingMillis());
+    }
+}
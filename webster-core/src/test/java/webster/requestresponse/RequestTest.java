@@ -0,0 +1,53 @@
+package webster.requestresponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class RequestTest {
+
+    @Test
+    public void headersAreLookedUpCaseInsensitively() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "text/html");
+        Request request = request(headers, Collections::emptyMap);
+        Assert.assertEquals(Optional.of("text/html"), request.header("content-type").value());
+        Assert.assertEquals("text/html", request.headers().value().get("CONTENT-TYPE"));
+        Assert.assertEquals(Optional.empty(), request.header("Accept").value());
+    }
+
+    @Test
+    public void paramsAreDecodedOnceAndOnlyWhenAskedFor() {
+        AtomicInteger decoded = new AtomicInteger();
+        Request request = request(Collections.emptyMap(), () -> {
+            decoded.incrementAndGet();
+            return Collections.singletonMap("q", Arrays.asList("a", "b"));
+        });
+        Request copy = request.withMethod("POST");
+        Assert.assertEquals(0, decoded.get());
+        Assert.assertEquals(Optional.of("a"), copy.param("q").value());
+        Assert.assertEquals("a", request.params().value().get("q"));
+        Assert.assertEquals(Arrays.asList("a", "b"), request.paramValues("q").value());
+        Assert.assertEquals(1, decoded.get());
+    }
+
+    @Test
+    public void bodyIsDecodedWithTheDeclaredCharset() {
+        Map<String, String> headers = Collections.singletonMap("content-type", "text/plain; charset=ISO-8859-1");
+        RequestBody body = RequestBody.of(new byte[]{'J', (byte) 0xfc, 'r', 'g', 'e', 'n'});
+        Request request = new Request("POST", "/", Headers.of(headers), body, Collections::emptyMap,
+                Collections.emptyList(), Collections.emptyMap());
+        Assert.assertEquals(Optional.of("J\u00fcrgen"), request.withMethod("PUT").body().value());
+        Assert.assertEquals(Optional.of("J\u00fcrgen"), request.body().value());
+    }
+
+    private Request request(Map<String, String> headers, Supplier<Map<String, List<String>>> params) {
+        ByteArrayInputStream body = new ByteArrayInputStream(new byte[0]);
+        return new Request("GET", "/", Headers.of(headers), body, BodyChunks.of(body), params,
+                Collections.emptyList(), Collections.emptyMap());
+    }
+}
@@ -0,0 +1,31 @@
+package webster.requestresponse.parsing;
+
+import org.junit.Assert;
+import org.junit.Test;
+import webster.requestresponse.RequestBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+public class FormFieldsTest {
+
+    private final RequestBody body = RequestBody.of(
+            "name=J%C3%BCrgen+M&_method=PUT&empty&a%2Bb=%zz;list=1&list=2".getBytes(StandardCharsets.US_ASCII));
+
+    @Test
+    public void findsSingleFields() {
+        Assert.assertEquals(Optional.of("PUT"), FormFields.find(body, "_method", StandardCharsets.UTF_8));
+        Assert.assertEquals(Optional.of("Jürgen M"), FormFields.find(body, "name", StandardCharsets.UTF_8));
+        Assert.assertEquals(Optional.of(""), FormFields.find(body, "empty", StandardCharsets.UTF_8));
+        Assert.assertEquals(Optional.of("%zz"), FormFields.find(body, "a+b", StandardCharsets.UTF_8));
+        Assert.assertEquals(Optional.empty(), FormFields.find(body, "_meth", StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parsesAllFields() {
+        Assert.assertEquals(Arrays.asList("1", "2"), FormFields.parse(body, StandardCharsets.UTF_8).get("list"));
+        Assert.assertEquals(Arrays.asList("JÃ¼rgen M"),
+                FormFields.parse(body, StandardCharsets.ISO_8859_1).get("name"));
+    }
+}
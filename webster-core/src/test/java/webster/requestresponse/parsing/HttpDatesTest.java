@@ -0,0 +1,45 @@
+package webster.requestresponse.parsing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public class HttpDatesTest {
+
+    private static final Instant sample = Instant.parse("1994-11-06T08:49:37Z");
+
+    @Test
+    public void formatsImfFixdate() {
+        Assert.assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDates.format(sample));
+        Assert.assertEquals("Thu, 29 Feb 2024 23:59:59 GMT", HttpDates.format(Instant.parse("2024-02-29T23:59:59Z")));
+        Assert.assertEquals("Thu, 01 Jan 1970 00:00:00 GMT", HttpDates.format(Instant.EPOCH));
+    }
+
+    @Test
+    public void parsesAllThreeFormats() {
+        Assert.assertEquals(Optional.of(sample), HttpDates.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+        Assert.assertEquals(Optional.of(sample), HttpDates.parse("Sunday, 06-Nov-94 08:49:37 GMT"));
+        Assert.assertEquals(Optional.of(sample), HttpDates.parse("Sun Nov  6 08:49:37 1994"));
+        Assert.assertEquals(Optional.of(sample), HttpDates.parse(" Sun, 06 Nov 1994 08:49:37 UTC "));
+    }
+
+    @Test
+    public void rejectsInvalidDates() {
+        for (String invalid : new String[]{"", "yesterday", "Sun, 31 Nov 1994 08:49:37 GMT",
+                "Sun, 06 Nov 1994 24:49:37 GMT", "Sun, 06 Nov 1994 08:49:37 CET", "Sun Nov 6 08:49:37 1994",
+                "Funday, 06-Nov-94 08:49:37 GMT"}) {
+            Assert.assertFalse(invalid, HttpDates.parse(invalid).isPresent());
+            Assert.assertFalse(invalid, Parsers.asHttpDate.apply(Optional.of(invalid)).isPresent());
+        }
+    }
+
+    @Test
+    public void roundTrips() {
+        for (long second = -5_000_000_000l; second < 5_000_000_000l; second += 7_777_777) {
+            Instant instant = Instant.ofEpochSecond(second);
+            Assert.assertEquals(Optional.of(instant), HttpDates.parse(HttpDates.format(instant)));
+        }
+    }
+}
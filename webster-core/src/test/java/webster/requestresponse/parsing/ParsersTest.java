@@ -12,4 +12,18 @@ public class ParsersTest {
         Optional<Integer> notAnInt = Parsers.asInt.apply(Optional.of("notAnInt"));
         Assert.assertFalse(notAnInt.isPresent());
     }
+
+    @Test
+    public void asGzipAccepted() {
+        Assert.assertTrue(gzipAccepted("deflate, gzip"));
+        Assert.assertTrue(gzipAccepted("*"));
+        Assert.assertFalse(gzipAccepted("gzip;q=0"));
+        Assert.assertFalse(gzipAccepted("*;q=1, gzip;q=0"));
+        Assert.assertTrue(gzipAccepted("gzip;q=0.5, *;q=0"));
+        Assert.assertFalse(gzipAccepted("deflate"));
+    }
+
+    private static boolean gzipAccepted(String acceptEncoding) {
+        return Parsers.asGzipAccepted.apply(Optional.of(acceptEncoding));
+    }
 }
@@ -0,0 +1,115 @@
+package webster.resource;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.Assert;
+import org.junit.Test;
+import webster.requestresponse.ByteBufResponseBody;
+import webster.requestresponse.InputStreamResponseBody;
+import webster.requestresponse.ResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class AssetCacheTest {
+
+    private final Map<String, byte[]> files = new HashMap<>();
+    private final AtomicInteger opened = new AtomicInteger();
+    private final Function<String, InputStream> opener = path -> {
+        opened.incrementAndGet();
+        byte[] content = files.get(path);
+        return content != null ? new ByteArrayInputStream(content) : null;
+    };
+
+    @Test
+    public void cachesAssetsAndMissingAssets() {
+        files.put("a.txt", "hello".getBytes());
+        AssetCache cache = new AssetCache(opener, 10000, false);
+        Assert.assertTrue(cache.lookup("a.txt").isPresent());
+        Assert.assertFalse(cache.lookup("missing.txt").isPresent());
+        int openedAfterLoading = opened.get();
+        Assert.assertTrue(cache.lookup("a.txt").isPresent());
+        Assert.assertFalse(cache.lookup("missing.txt").isPresent());
+        Assert.assertEquals(openedAfterLoading, opened.get());
+        Assert.assertEquals(2, cache.stats().hits);
+        Assert.assertEquals(2, cache.stats().misses);
+    }
+
+    @Test
+    public void servesGzippedVariantOfCompressibleAssets() {
+        byte[] text = new byte[4096];
+        Arrays.fill(text, (byte) 'a');
+        files.put("a.txt", text);
+        AssetCache cache = new AssetCache(opener, 100000, true);
+        Assert.assertTrue(cache.lookup("a.txt").get().hasGzipVariant());
+        AssetCache.Asset asset = cache.lookup("a.txt").get();
+        ByteBuf gzipped = content(cache.content(asset, true));
+        ByteBuf identity = content(cache.content(asset, false));
+        Assert.assertEquals(0x1f, gzipped.getUnsignedByte(0));
+        Assert.assertTrue(gzipped.readableBytes() < identity.readableBytes());
+        gzipped.release();
+        identity.release();
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedAssets() {
+        files.put("a", new byte[400]);
+        files.put("b", new byte[400]);
+        files.put("c", new byte[400]);
+        AssetCache cache = new AssetCache(opener, 1000, false);
+        cache.lookup("a");
+        cache.lookup("b");
+        cache.lookup("a");
+        cache.lookup("c");
+        Assert.assertEquals(1, cache.stats().evictions);
+        int openedBefore = opened.get();
+        cache.lookup("a");
+        Assert.assertEquals(openedBefore, opened.get());
+        ByteBuf b = content(cache.content(cache.lookup("b").get(), false));
+        Assert.assertEquals(400, b.readableBytes());
+        b.release();
+        Assert.assertTrue(cache.stats().bytes <= 1000);
+    }
+
+    @Test
+    public void keepsMissingPathsApartFromAssets() {
+        files.put("a", new byte[400]);
+        AssetCache cache = new AssetCache(opener, 1000, false, 10);
+        AssetCache.Asset asset = cache.lookup("a").get();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(cache.lookup("probe" + i).isPresent());
+        }
+        Assert.assertEquals(0, cache.stats().evictions);
+        Assert.assertEquals(10, cache.stats().missingPaths);
+        int openedBefore = opened.get();
+        ByteBuf a = content(cache.content(asset, false));
+        Assert.assertEquals(400, a.readableBytes());
+        a.release();
+        Assert.assertEquals(openedBefore, opened.get());
+    }
+
+    @Test
+    public void streamsAssetsLargerThanTheCacheWithoutCompressingThem() throws Exception {
+        byte[] text = new byte[4096];
+        Arrays.fill(text, (byte) 'a');
+        files.put("large.txt", text);
+        AssetCache cache = new AssetCache(opener, 1000, true);
+        AssetCache.Asset asset = cache.lookup("large.txt").get();
+        Assert.assertFalse(asset.hasGzipVariant());
+        Assert.assertEquals(4096, asset.length());
+        int openedBefore = opened.get();
+        ResponseBody body = cache.content(asset, true);
+        Assert.assertTrue(body instanceof InputStreamResponseBody);
+        Assert.assertEquals(4096, ((InputStreamResponseBody) body).content().available());
+        Assert.assertEquals(openedBefore + 1, opened.get());
+        Assert.assertTrue(cache.stats().bytes < 1000);
+    }
+
+    private static ByteBuf content(ResponseBody body) {
+        return ((ByteBufResponseBody) body).content();
+    }
+}
@@ -0,0 +1,173 @@
+package webster.routing;
+
+import org.junit.Assert;
+import org.junit.Test;
+import webster.requestresponse.Processors;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.Responses;
+import webster.requestresponse.parsing.HttpDates;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ResponseCacheTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Map<String, String> responseHeaders = new HashMap<>();
+    // answers with the URI, the request's Accept-Language and the number of calls so far
+    private final Function<Request, CompletableFuture<Response>> handler = request -> {
+        String body = request.uri() + " " + request.header("Accept-Language").value().orElse("-") + " "
+                + calls.incrementAndGet();
+        return CompletableFuture.completedFuture(
+                new Response(200, Responses.bodyFrom(body), new HashMap<>(responseHeaders)));
+    };
+
+    @Test
+    public void answersFreshResponsesWithoutTheHandler() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        responseHeaders.put("Cache-Control", "max-age=60");
+
+        Assert.assertEquals("/a - 1", body(cache.apply(get("/a"), handler).join()));
+        Response cached = cache.apply(get("/a"), handler).join();
+
+        Assert.assertEquals("/a - 1", body(cached));
+        Assert.assertEquals("max-age=60", cached.headers().get("Cache-Control"));
+        Assert.assertEquals("0", cached.headers().get("Age"));
+        Assert.assertEquals("/b - 2", body(cache.apply(get("/b"), handler).join()));
+        Assert.assertEquals(1, cache.stats().hits);
+        Assert.assertEquals(2, cache.stats().stores);
+    }
+
+    @Test
+    public void keepsNothingWithoutFreshness() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+
+        cache.apply(get("/a"), handler).join();
+        responseHeaders.put("Cache-Control", "max-age=60, private");
+        cache.apply(get("/a"), handler).join();
+        responseHeaders.put("Cache-Control", "max-age=0");
+        cache.apply(get("/a"), handler).join();
+
+        Assert.assertEquals("/a - 4", body(cache.apply(get("/a"), handler).join()));
+        Assert.assertEquals(0, cache.stats().entries);
+    }
+
+    @Test
+    public void expiresResponses() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        Instant now = Instant.now();
+        responseHeaders.put("Date", HttpDates.format(now));
+        responseHeaders.put("Expires", HttpDates.format(now.plusSeconds(60)));
+
+        cache.apply(get("/a"), handler).join();
+        Assert.assertEquals("/a - 1", body(cache.apply(get("/a"), handler).join()));
+
+        responseHeaders.put("Expires", HttpDates.format(now.minusSeconds(60)));
+        cache.apply(get("/b"), handler).join();
+        Assert.assertEquals("/b - 3", body(cache.apply(get("/b"), handler).join()));
+    }
+
+    @Test
+    public void keepsAVariantPerVaryingHeader() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        responseHeaders.put("Cache-Control", "max-age=60");
+        responseHeaders.put("Vary", "Accept-Language");
+
+        cache.apply(get("/a", "Accept-Language", "de"), handler).join();
+        cache.apply(get("/a", "Accept-Language", "en"), handler).join();
+
+        Assert.assertEquals("/a de 1", body(cache.apply(get("/a", "Accept-Language", "de"), handler).join()));
+        Assert.assertEquals("/a en 2", body(cache.apply(get("/a", "Accept-Language", "en"), handler).join()));
+        // the media type is negotiated from Accept even if the response doesn't say so
+        Assert.assertEquals("/a de 3",
+                body(cache.apply(get("/a", "Accept-Language", "de", "Accept", "text/html"), handler).join()));
+    }
+
+    @Test
+    public void answersConditionalRequestsWithNotModified() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        responseHeaders.put("Cache-Control", "max-age=60");
+        responseHeaders.put("ETag", "\"v1\"");
+        cache.apply(get("/a"), handler).join();
+
+        Response notModified = cache.apply(get("/a", "If-None-Match", "\"v0\", W/\"v1\""), handler).join();
+        Response modified = cache.apply(get("/a", "If-None-Match", "\"v2\""), handler).join();
+
+        Assert.assertEquals(304, notModified.status());
+        Assert.assertEquals("\"v1\"", notModified.headers().get("ETag"));
+        Assert.assertEquals(200, modified.status());
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void dropsEntriesOnInvalidationAndUnsafeRequests() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        responseHeaders.put("Cache-Control", "max-age=60");
+        cache.apply(get("/users/1"), handler).join();
+        cache.apply(get("/users/1?page=2"), handler).join();
+        cache.apply(get("/users/2"), handler).join();
+        cache.apply(get("/orders"), handler).join();
+
+        cache.apply(request("PUT", "/users/1"), handler).join();
+        Assert.assertEquals(2, cache.stats().entries);
+        Assert.assertEquals(1, cache.invalidate("/users/"));
+        Assert.assertEquals(1, cache.stats().entries);
+        Assert.assertEquals("/orders - 4", body(cache.apply(get("/orders"), handler).join()));
+    }
+
+    @Test
+    public void evictsOneOffResponsesBeforeRepeatedOnes() {
+        ResponseCache cache = new ResponseCache(8 * 1024);
+        responseHeaders.put("Cache-Control", "max-age=60");
+        responseHeaders.put("X-Padding", String.join("", Collections.nCopies(300, "x")));
+        cache.apply(get("/popular"), handler).join();
+        cache.apply(get("/popular"), handler).join();
+
+        for (int i = 0; i < 100; i++) {
+            cache.apply(get("/once/" + i), handler).join();
+        }
+
+        Assert.assertTrue(cache.stats().evictions > 0);
+        Assert.assertTrue(cache.stats().bytes <= 8 * 1024);
+        Assert.assertEquals("/popular - 1", body(cache.apply(get("/popular"), handler).join()));
+    }
+
+    @Test
+    public void keepsBodiesOffHeap() {
+        ResponseCache cache = new ResponseCache(1024 * 1024, true);
+        responseHeaders.put("Cache-Control", "max-age=60");
+        cache.apply(get("/a"), handler).join();
+
+        Response cached = cache.apply(get("/a"), handler).join();
+        cache.clear();
+
+        Assert.assertEquals("/a - 1", body(cached));
+        Assert.assertEquals(0, cache.stats().bytes);
+    }
+
+    private static String body(Response response) {
+        return new String(response.body().process(Processors.inMemoryBytesProcessor(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8);
+    }
+
+    private static Request get(String uri, String... headers) {
+        return request("GET", uri, headers);
+    }
+
+    private static Request request(String method, String uri, String... headers) {
+        Map<String, String> headerMap = new HashMap<>();
+        for (int i = 0; i < headers.length; i += 2) {
+            headerMap.put(headers[i], headers[i + 1]);
+        }
+        return new Request(method, uri, headerMap, new ByteArrayInputStream(new byte[0]), Collections.emptyMap(),
+                Collections.emptyList(), Collections.emptyMap());
+    }
+}
@@ -0,0 +1,66 @@
+package webster.routing;
+
+import org.junit.Assert;
+import org.junit.Test;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+
+import java.io.ByteArrayInputStream;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+public class RouteTrieTest {
+
+    private static final List<String> patterns = Arrays.asList(
+            "/", "/hello", "/hello/", "/users/:id", "/users/:id/edit", "/users/new", "/files/*", "/a/*/c",
+            "/*", "/static/:name/*", "/x/:a/:b", "/users/:userId/posts/:postId");
+
+    private static final List<String> paths = Arrays.asList(
+            "/", "/hello", "/hello/", "/users/42", "/users/42/", "/users/new", "/users/42/edit", "/files/",
+            "/files/a", "/files/a/b/c", "/a/b/c", "/a/b/d", "/static/x", "/static/x/y", "/static/x/y/z", "/x/1/2",
+            "/users/1/posts/2", "/nothing/here", "/files");
+
+    @Test
+    public void matchesSameRouteAsLinearScanInEveryOrder() {
+        for (int rotation = 0; rotation < patterns.size(); rotation++) {
+            List<String> ordered = new ArrayList<>(patterns);
+            Collections.rotate(ordered, rotation);
+            List<Route> routes = ordered.stream().map(RouteTrieTest::route).collect(Collectors.toList());
+            RouteTrie trie = new RouteTrie(routes);
+            for (String path : paths) {
+                Optional<Route> expected = routes.stream().filter(r -> r.matches(request(path))).findFirst();
+                Optional<RouteTrie.Match> actual = trie.match(path);
+                Assert.assertEquals(path, expected.map(Route::pattern), actual.map(m -> m.route().pattern()));
+            }
+        }
+    }
+
+    @Test
+    public void extractsSameSplatsAndPathParamsAsRoute() {
+        List<Route> routes = patterns.stream().map(RouteTrieTest::route).collect(Collectors.toList());
+        RouteTrie trie = new RouteTrie(routes);
+        for (String path : paths) {
+            Optional<RouteTrie.Match> match = trie.match(path);
+            if (match.isPresent()) {
+                AtomicReference<Request> seen = new AtomicReference<>();
+                new Route(match.get().route().pattern(), req -> {
+                    seen.set(req);
+                    return CompletableFuture.completedFuture(new Response(200));
+                }).apply(request(path));
+                Assert.assertEquals(path, seen.get().splats().value(), match.get().splats());
+                Assert.assertEquals(path, seen.get().pathParams().value(), match.get().pathParams());
+            }
+        }
+    }
+
+    private static Route route(String pattern) {
+        return new Route(pattern, req -> CompletableFuture.completedFuture(new Response(200)));
+    }
+
+    private static Request request(String path) {
+        return new Request("GET", path, Collections.emptyMap(), new ByteArrayInputStream(new byte[0]),
+                Collections.emptyMap(), Collections.emptyList(), Collections.emptyMap());
+    }
+}
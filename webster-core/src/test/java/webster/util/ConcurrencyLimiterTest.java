@@ -0,0 +1,124 @@
+package webster.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import webster.requestresponse.Request;
+import webster.requestresponse.Response;
+import webster.requestresponse.ResponseBody;
+import webster.resource.Resource;
+import webster.routing.Decorators;
+import webster.routing.Route;
+import webster.routing.RoutingBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void rejectsRequestsBeyondTheLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10, 1);
+        Optional<ConcurrencyLimiter.Permit> first = limiter.tryAcquire();
+        Assert.assertTrue(limiter.tryAcquire().isPresent());
+        Assert.assertFalse(limiter.tryAcquire().isPresent());
+        first.get().release();
+        first.get().release();
+        Assert.assertEquals(1, limiter.inFlight());
+        Assert.assertTrue(limiter.tryAcquire().isPresent());
+    }
+
+    @Test
+    public void growsWhileUsedAndShrinksOncePerGeneration() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100, 1);
+        for (int round = 0; round < 50; round++) {
+            List<ConcurrencyLimiter.Permit> permits = acquireAll(limiter);
+            permits.forEach(ConcurrencyLimiter.Permit::release);
+        }
+        int grown = limiter.limit();
+        Assert.assertTrue(grown > 10);
+
+        List<ConcurrencyLimiter.Permit> permits = acquireAll(limiter);
+        permits.forEach(ConcurrencyLimiter.Permit::drop);
+        Assert.assertEquals((int) (grown * 0.9), limiter.limit(), 1);
+    }
+
+    @Test
+    public void answersRejectedRequestsWithoutRunningTheHandler() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 10, 3);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<Response> pending = new CompletableFuture<>();
+        Function<Request, CompletableFuture<Response>> limited = Decorators.limitConcurrency(limiter).apply(req -> {
+            calls.incrementAndGet();
+            return pending;
+        });
+
+        limited.apply(request());
+        Response rejected = limited.apply(request()).join();
+
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(503, rejected.status());
+        Assert.assertEquals("3", rejected.headers().get("Retry-After"));
+    }
+
+    @Test
+    public void letsTheDefaultFlowAnswerRejectedRequests() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 10, 3);
+        AtomicInteger entities = new AtomicInteger();
+        Route route = RoutingBuilder.from("/").withConcurrencyLimit(limiter).toResource(new Resource() {
+            @Override
+            public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+                return CompletableFuture.completedFuture(true);
+            }
+
+            @Override
+            public CompletableFuture<Map<String, String>> additionalHeaders(int responseStatus, Request request) {
+                return CompletableFuture.completedFuture(Collections.singletonMap("X-Status", "" + responseStatus));
+            }
+
+            @Override
+            public CompletableFuture<ResponseBody> entity(Request request) {
+                entities.incrementAndGet();
+                return new CompletableFuture<>();
+            }
+        });
+
+        route.apply(request());
+        Response rejected = route.apply(request()).join();
+
+        Assert.assertEquals(1, entities.get());
+        Assert.assertEquals(503, rejected.status());
+        Assert.assertEquals("3", rejected.headers().get("Retry-After"));
+        // completed with the defaults of the flow
+        Assert.assertEquals("503", rejected.headers().get("X-Status"));
+    }
+
+    @Test
+    public void doesNotShrinkOnErrorResponsesOfTheResource() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100, 1);
+        Function<Request, CompletableFuture<Response>> limited = Decorators.limitConcurrency(limiter)
+                .apply(req -> CompletableFuture.completedFuture(new Response(500)));
+        // the first sample can't be slow, so only a drop would cut the limit
+        Assert.assertEquals(500, limited.apply(request()).join().status());
+        Assert.assertEquals(10, limiter.limit());
+    }
+
+    private static Request request() {
+        return new Request("GET", "/", Collections.emptyMap(), new ByteArrayInputStream(new byte[0]),
+                Collections.emptyMap(), Collections.emptyList(), Collections.emptyMap());
+    }
+
+    private List<ConcurrencyLimiter.Permit> acquireAll(ConcurrencyLimiter limiter) {
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (Optional<ConcurrencyLimiter.Permit> p = limiter.tryAcquire(); p.isPresent(); p = limiter.tryAcquire()) {
+            permits.add(p.get());
+        }
+        return permits;
+    }
+}
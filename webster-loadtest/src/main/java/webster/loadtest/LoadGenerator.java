@@ -0,0 +1,232 @@
+package webster.loadtest;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpVersion;
+import webster.metrics.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sends GET requests over keep-alive connections, one request per connection at a time.
+//
+// Closed loop: every connection sends its next request as soon as the response to the previous one has arrived, so
+// the load adapts to the server and latencies only show the server's share of the time.
+//
+// Fixed rate: requests are due at fixed intervals, spread over the connections. A request that is due while the
+// connection still waits for a response is sent right after that response, and its latency is counted from the
+// time it was due, not from the time it was sent. Otherwise a stalled server would hold back the requests that
+// would have seen the stall (coordinated omission) and the percentiles would look better than what clients see.
+class LoadGenerator {
+
+    private final EventLoopGroup group;
+    private final String host;
+    private final int port;
+    private final FullHttpRequest request;
+    private final int connections;
+    // requests per second over all connections, 0 for a closed loop
+    private final double rate;
+
+    private final List<Channel> channels = new ArrayList<>();
+    private final AtomicInteger opened = new AtomicInteger();
+    private volatile boolean running = false;
+    private volatile Recording recording = new Recording();
+
+    LoadGenerator(EventLoopGroup group, String host, int port, String path, Map<String, String> headers,
+                  int connections, double rate) {
+        this.group = group;
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.rate = rate;
+        this.request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path, Unpooled.EMPTY_BUFFER);
+        request.headers().set(HttpHeaderNames.HOST, host);
+        headers.forEach(request.headers()::set);
+    }
+
+    // warms up, then measures for durationMillis
+    Result run(long warmupMillis, long durationMillis) throws InterruptedException {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline().addLast(new HttpClientCodec(), new HttpObjectAggregator(16 * 1024 * 1024),
+                                new Connection(opened.getAndIncrement()));
+                    }
+                });
+        running = true;
+        try {
+            for (int i = 0; i < connections; i++) {
+                channels.add(bootstrap.connect(host, port).sync().channel());
+            }
+            Thread.sleep(warmupMillis);
+            Recording measured = new Recording();
+            recording = measured;
+            long started = System.nanoTime();
+            Thread.sleep(durationMillis);
+            // responses arriving from now on aren't counted
+            recording = new Recording();
+            return new Result(measured, System.nanoTime() - started);
+        } finally {
+            running = false;
+            for (Channel channel : channels) {
+                channel.close().syncUninterruptibly();
+            }
+            channels.clear();
+        }
+    }
+
+    private class Connection extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+        private final long period = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * connections / rate) : 0;
+        private final int index;
+
+        private ChannelHandlerContext ctx;
+        private boolean waiting = false;
+        // when the request in flight was due, or sent in a closed loop
+        private long sentAt;
+        // fixed rate only: the time the next request to send was due, and the time the next one is going to be
+        // due. Requests in between are overdue.
+        private long nextToSend;
+        private long nextDue;
+
+        private Connection(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+            if (period == 0) {
+                send(System.nanoTime());
+            } else {
+                // the connections start evenly spread over one period
+                long offset = period * (index % connections) / connections;
+                nextToSend = nextDue = System.nanoTime() + offset;
+                ctx.executor().schedule(this::tick, offset, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+            long latency = System.nanoTime() - sentAt;
+            waiting = false;
+            recording.record(latency, response.status().code(), response.content().readableBytes());
+            if (period == 0) {
+                send(System.nanoTime());
+            } else {
+                sendOverdue();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            recording.errors.increment();
+            ctx.close();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (running) {
+                // the server closed the connection
+                recording.errors.increment();
+            }
+        }
+
+        private void tick() {
+            if (!running || !ctx.channel().isActive()) {
+                return;
+            }
+            long now = System.nanoTime();
+            while (nextDue <= now) {
+                nextDue += period;
+            }
+            sendOverdue();
+            ctx.executor().schedule(this::tick, nextDue - now, TimeUnit.NANOSECONDS);
+        }
+
+        private void sendOverdue() {
+            if (!waiting && nextToSend < nextDue) {
+                send(nextToSend);
+                nextToSend += period;
+            }
+        }
+
+        private void send(long dueAt) {
+            if (!running) {
+                return;
+            }
+            waiting = true;
+            sentAt = dueAt;
+            ctx.writeAndFlush(request.retainedDuplicate());
+        }
+    }
+
+    private static class Recording {
+        private final Histogram latencies = new Histogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder failedStatuses = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private void record(long nanos, int status, int bodyBytes) {
+            latencies.record(nanos);
+            bytes.add(bodyBytes);
+            if (status >= 400) {
+                failedStatuses.increment();
+            }
+        }
+    }
+
+    static class Result {
+        private final Recording recording;
+        private final long nanos;
+
+        private Result(Recording recording, long nanos) {
+            this.recording = recording;
+            this.nanos = nanos;
+        }
+
+        long requests() {
+            return recording.latencies.count();
+        }
+
+        double requestsPerSecond() {
+            return requests() / (nanos / 1e9);
+        }
+
+        double millisAt(double quantile) {
+            return recording.latencies.valueAt(quantile) / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%9d requests %11.1f req/s   p50 %8.3f  p99 %8.3f  p999 %8.3f  max %8.3f ms"
+                            + "   %d errors, %d 4xx/5xx, %.1f MB",
+                    requests(), requestsPerSecond(), millisAt(0.5), millisAt(0.99), millisAt(0.999),
+                    recording.latencies.max() / 1e6, recording.errors.sum(), recording.failedStatuses.sum(),
+                    recording.bytes.sum() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package webster.loadtest;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import webster.netty.Server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Starts a server with the sample resources (see SampleResources) on a free port and puts load on it over loopback,
+// once for every number of server worker threads given. Client and server share the machine, so leave cores to the
+// client, e.g. with taskset. With --port the load goes to a server that's already running instead.
+//
+//   java -jar webster-loadtest/target/loadtest.jar --path /hello --connections 64 --server-threads 1,2,4
+//   java -jar webster-loadtest/target/loadtest.jar --path /async?ms=5 --rate 20000 --duration 30
+public class LoadTest {
+
+    private static final String usage = "options:\n"
+            + "  --path /hello              the resource to request, see SampleResources\n"
+            + "  --header 'Name: value'     sent with every request, may be repeated\n"
+            + "  --connections 16           keep-alive connections, one request in flight each\n"
+            + "  --rate 0                   requests per second, 0 for a closed loop\n"
+            + "  --warmup 5                 seconds before measuring\n"
+            + "  --duration 10              seconds of measuring\n"
+            + "  --server-threads 0         comma separated worker thread counts, 0 lets netty choose\n"
+            + "  --executor-threads 0       threads of the server's executor, 0 for the common pool\n"
+            + "  --non-blocking true        run non-blocking routes on the event loop\n"
+            + "  --client-threads 1         event loop threads of the client\n"
+            + "  --host localhost --port 0  an external server instead of the sample resources";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                System.err.println(usage);
+                System.exit(2);
+            }
+            if (args[i].equals("--header")) {
+                String[] header = args[i + 1].split(":", 2);
+                headers.put(header[0].trim(), header.length > 1 ? header[1].trim() : "");
+            } else {
+                options.put(args[i].substring(2), args[i + 1]);
+            }
+        }
+
+        String path = options.getOrDefault("path", "/hello");
+        int connections = Integer.parseInt(options.getOrDefault("connections", "16"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        long warmupMillis = (long) (Double.parseDouble(options.getOrDefault("warmup", "5")) * 1000);
+        long durationMillis = (long) (Double.parseDouble(options.getOrDefault("duration", "10")) * 1000);
+        String host = options.getOrDefault("host", "localhost");
+        int port = Integer.parseInt(options.getOrDefault("port", "0"));
+        List<Integer> serverThreads = new ArrayList<>();
+        for (String threads : options.getOrDefault("server-threads", "0").split(",")) {
+            serverThreads.add(Integer.parseInt(threads.trim()));
+        }
+
+        System.out.println(String.format("GET %s, %d connections, %s, %ds", path, connections,
+                rate > 0 ? "fixed rate of " + rate + " req/s" : "closed loop", durationMillis / 1000));
+        EventLoopGroup clientGroup =
+                new NioEventLoopGroup(Integer.parseInt(options.getOrDefault("client-threads", "1")));
+        try {
+            if (port != 0) {
+                LoadGenerator generator = new LoadGenerator(clientGroup, host, port, path, headers, connections, rate);
+                System.out.println(generator.run(warmupMillis, durationMillis));
+                return;
+            }
+            for (int threads : serverThreads) {
+                ExecutorService executor = executor(Integer.parseInt(options.getOrDefault("executor-threads", "0")));
+                Server.Builder builder = new Server.Builder()
+                        .withPort(0)
+                        .withWorkerThreads(threads)
+                        .withNonBlockingHandlers(Boolean.parseBoolean(options.getOrDefault("non-blocking", "true")));
+                if (executor != null) {
+                    builder.withExecutorService(executor);
+                }
+                try (Server.Running server = builder.build().start(SampleResources.routes())) {
+                    LoadGenerator generator = new LoadGenerator(clientGroup, "localhost", server.port(), path, headers,
+                            connections, rate);
+                    LoadGenerator.Result result = generator.run(warmupMillis, durationMillis);
+                    System.out.println(String.format("%-18s %s", threads == 0 ? "default threads" : threads
+                            + (threads == 1 ? " thread" : " threads"), result));
+                } finally {
+                    if (executor != null) {
+                        executor.shutdown();
+                    }
+                }
+            }
+        } finally {
+            clientGroup.shutdownGracefully();
+        }
+    }
+
+    private static ExecutorService executor(int threads) {
+        return threads > 0 ? Executors.newFixedThreadPool(threads) : null;
+    }
+}
@@ -0,0 +1,101 @@
+package webster.loadtest;
+
+import webster.requestresponse.Request;
+import webster.requestresponse.ResponseBody;
+import webster.requestresponse.Responses;
+import webster.resource.BlockingResource;
+import webster.resource.Resource;
+import webster.routing.RoutingTable;
+import webster.util.Futures;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static webster.routing.RoutingBuilder.from;
+import static webster.routing.RoutingBuilder.routingTable;
+
+// The resources the load test runs against:
+//   /hello             a short text, answered on the event loop
+//   /large             64 KB of compressible text
+//   /etag              a short text with an etag, send If-None-Match: "v1" for 304s
+//   /async?ms=10       answered after ms milliseconds without blocking a thread
+//   /blocking?ms=10    blocks a thread of the executor for ms milliseconds
+class SampleResources {
+
+    private static final String large = String.join("", Collections.nCopies(4096, "hello, webster! "));
+
+    static RoutingTable routes() {
+        return routingTable()
+                .withRoute(from("/hello").toResource(new Text("hello")))
+                .withRoute(from("/large").toResource(new Text(large)))
+                .withRoute(from("/etag").toResource(new Text("hello") {
+                    @Override
+                    public CompletableFuture<Optional<String>> etag(Request request) {
+                        return CompletableFuture.completedFuture(Optional.of("\"v1\""));
+                    }
+                }))
+                .withRoute(from("/async").toResource(new Text("hello") {
+                    @Override
+                    public CompletableFuture<ResponseBody> entity(Request request) {
+                        return Futures.afterTimeout(Responses.bodyFrom("hello"), millis(request));
+                    }
+                }))
+                .withRoute(from("/blocking").toBlockingResource(new BlockingResource() {
+                    @Override
+                    public Set<String> supportedMediaTypes() {
+                        return Collections.singleton("text/plain");
+                    }
+
+                    @Override
+                    public boolean doesRequestedResourceExist(Request request) {
+                        return true;
+                    }
+
+                    @Override
+                    public ResponseBody entity(Request request) {
+                        try {
+                            Thread.sleep(millis(request));
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return Responses.bodyFrom("hello");
+                    }
+                }))
+                .build();
+    }
+
+    private static long millis(Request request) {
+        return request.param("ms").value().map(Long::parseLong).orElse(10L);
+    }
+
+    private static class Text implements Resource {
+
+        private final String text;
+
+        private Text(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public Set<String> supportedMediaTypes() {
+            return Collections.singleton("text/plain");
+        }
+
+        @Override
+        public boolean isCompressible(String mediaType) {
+            return true;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> doesRequestedResourceExist(Request request) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<ResponseBody> entity(Request request) {
+            return CompletableFuture.completedFuture(Responses.bodyFrom(text));
+        }
+    }
+}